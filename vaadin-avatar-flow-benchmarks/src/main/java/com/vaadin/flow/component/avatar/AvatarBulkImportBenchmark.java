@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link AvatarBulkImport} in imported images per
+ * second over a synthetic corpus of profile photos, with different numbers
+ * of workers.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvatarBulkImportBenchmark {
+
+    private static final int CORPUS_SIZE = 200;
+    private static final int AVATAR_SIZE = 128;
+
+    @Param({ "1", "2", "4", "8" })
+    private int parallelism;
+
+    private final Map<String, byte[]> corpus = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private AvatarStore store;
+    private AvatarBulkImport bulkImport;
+
+    @Setup(Level.Trial)
+    public void setupCorpus() throws IOException {
+        Random random = new Random(1);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            String id = "user-" + i;
+            ids.add(id);
+            corpus.put(id, AvatarSampleImages.createPhoto(random,
+                    800 + random.nextInt(800), 600 + random.nextInt(600)));
+        }
+        store = AvatarStore.get("import-benchmark");
+        bulkImport = new AvatarBulkImport(store, AVATAR_SIZE);
+        bulkImport.setParallelism(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void clearStore() {
+        store.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public AvatarBulkImport.Result importCorpus() throws InterruptedException {
+        return bulkImport.importImages(ids, corpus::get);
+    }
+}
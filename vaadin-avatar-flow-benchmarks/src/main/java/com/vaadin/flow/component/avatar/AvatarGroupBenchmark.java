@@ -0,0 +1,167 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the hot paths of {@link AvatarGroup}.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AvatarGroupBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int size;
+
+    private List<AvatarGroupItem> items;
+    private AvatarGroup avatarGroup;
+    private AvatarGroupItem extraItem;
+    private AvatarGroupItem updatedItem;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        items = createItems(size);
+        extraItem = new AvatarGroupItem("Extra User");
+        avatarGroup = new AvatarGroup(items);
+        updatedItem = items.get(size / 2);
+    }
+
+    @Benchmark
+    public AvatarGroup setItems() {
+        avatarGroup.setItems(items);
+        return avatarGroup;
+    }
+
+    @Benchmark
+    public AvatarGroup add(ItemsReset reset) {
+        avatarGroup.add(extraItem);
+        return avatarGroup;
+    }
+
+    @Benchmark
+    public AvatarGroup remove(ItemsReset reset) {
+        avatarGroup.remove(updatedItem);
+        return avatarGroup;
+    }
+
+    @Benchmark
+    public AvatarGroupItem setName() {
+        updatedItem.setName((counter++ & 1) == 0 ? "Foo Bar" : "Bar Baz");
+        return updatedItem;
+    }
+
+    @Benchmark
+    public AvatarGroupItem setAbbreviation() {
+        updatedItem.setAbbreviation((counter++ & 1) == 0 ? "FB" : "BB");
+        return updatedItem;
+    }
+
+    @Benchmark
+    public AvatarGroupItem setImage() {
+        updatedItem.setImage((counter++ & 1) == 0 ? "foo.png" : "bar.png");
+        return updatedItem;
+    }
+
+    @Benchmark
+    public AvatarGroupItem setColorIndex() {
+        updatedItem.setColorIndex(counter++ & 7);
+        return updatedItem;
+    }
+
+    @Benchmark
+    public JsonArray createItemsJsonArray() {
+        return avatarGroup.createItemsJsonArray(items);
+    }
+
+    @Benchmark
+    public String createItemsJsonArrayText() {
+        return avatarGroup.createItemsJsonArray(items).toJson();
+    }
+
+    @Benchmark
+    public String writeItemsJson() {
+        return avatarGroup.writeItemsJson(items);
+    }
+
+    /**
+     * Writes the items as JSON text and encodes the text as the string
+     * parameter of the JavaScript invocation in the UIDL response, which is
+     * what is sent to the client when
+     * {@link AvatarGroup#setJsonTextItemsPayload(boolean)} is enabled, to
+     * compare with {@link #createItemsJsonArrayText()}. The peak retained size
+     * of both is compared in {@code AvatarMemoryFootprintTest}.
+     */
+    @Benchmark
+    public String writeItemsJsonAsUidlString() {
+        return Json.create(avatarGroup.writeItemsJson(items)).toJson();
+    }
+
+    /**
+     * Restores the items of the avatar group before each invocation of the
+     * benchmarks that change them, outside of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class ItemsReset {
+
+        @Setup(Level.Invocation)
+        public void reset(AvatarGroupBenchmark benchmark) {
+            benchmark.avatarGroup.setItems(benchmark.items);
+        }
+    }
+
+    static List<AvatarGroupItem> createItems(int size) {
+        List<AvatarGroupItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            AvatarGroupItem item = new AvatarGroupItem("User " + i);
+            if (i % 3 == 0) {
+                item.setAbbreviation("U" + (i % 100));
+            }
+            if (i % 2 == 0) {
+                item.setImage("https://cdn.example.com/avatars/" + i + ".png");
+            }
+            item.setColorIndex(i % 7);
+            items.add(item);
+        }
+        return items;
+    }
+}
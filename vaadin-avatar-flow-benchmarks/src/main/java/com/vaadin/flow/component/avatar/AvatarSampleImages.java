@@ -0,0 +1,93 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Creates the sample images of the benchmarks and the measurements, so that
+ * they do not depend on image files.
+ *
+ * @author Vaadin Ltd
+ */
+final class AvatarSampleImages {
+
+    private AvatarSampleImages() {
+    }
+
+    /**
+     * Creates a profile photo of the given size, a face over a gradient with
+     * sensor noise, saved as JPEG at quality 100 like an unoptimized camera
+     * photo.
+     */
+    static byte[] createPhoto(Random random, int width, int height)
+            throws IOException {
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0,
+                new Color(random.nextInt(0xffffff)), width, height,
+                new Color(random.nextInt(0xffffff))));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(random.nextInt(0xffffff)));
+        graphics.fillOval(width / 4, height / 8, width / 2, height * 3 / 4);
+        graphics.dispose();
+        // Sensor noise
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = addNoise(pixels[i], random.nextInt(16) - 8);
+        }
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg")
+                .next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO
+                .createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(1);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static int addNoise(int rgb, int noise) {
+        int red = clamp((rgb >> 16 & 0xff) + noise);
+        int green = clamp((rgb >> 8 & 0xff) + noise);
+        int blue = clamp((rgb & 0xff) + noise);
+        return red << 16 | green << 8 | blue;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.UI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrolls a feed that displays an avatar on each visible row, one row at a
+ * time: the row that scrolls out of view is removed and a new row is added.
+ * <p>
+ * The avatar of the new row is either created from scratch, obtained from an
+ * {@link AvatarPool} that the removed avatar is released to, or the avatar of
+ * the removed row is rebound while it stays attached. Run with the GC
+ * profiler to compare the allocation per scrolled row.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AvatarScrollingBenchmark {
+
+    private static final int FEED_SIZE = 10000;
+    private static final int USER_COUNT = 100;
+    private static final int VISIBLE_ROWS = 50;
+
+    @Param({ "create", "pool", "rebind" })
+    private String recycling;
+
+    private final String[] names = new String[USER_COUNT];
+    private final String[] abbreviations = new String[USER_COUNT];
+    private final String[] images = new String[USER_COUNT];
+
+    private UI ui;
+    private ArrayDeque<Avatar> rows;
+    private AvatarPool pool;
+    private int nextRow;
+
+    @Setup(Level.Trial)
+    public void setupUsers() {
+        for (int i = 0; i < USER_COUNT; i++) {
+            names[i] = "User " + i;
+            abbreviations[i] = "U" + i;
+            images[i] = "https://cdn.example.com/avatars/" + i + ".png";
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupFeed() {
+        ui = new UI();
+        rows = new ArrayDeque<>(VISIBLE_ROWS);
+        pool = new AvatarPool(VISIBLE_ROWS);
+        for (nextRow = 0; nextRow < VISIBLE_ROWS; nextRow++) {
+            Avatar avatar = createAvatar(nextRow);
+            ui.add(avatar);
+            rows.addLast(avatar);
+        }
+    }
+
+    @Benchmark
+    public Avatar scrollOneRow() {
+        int user = nextRow++ % FEED_SIZE % USER_COUNT;
+        Avatar removed = rows.pollFirst();
+        Avatar added;
+        switch (recycling) {
+        case "pool":
+            pool.release(removed);
+            added = pool.obtain(names[user], abbreviations[user],
+                    images[user], user % 7);
+            ui.add(added);
+            break;
+        case "rebind":
+            added = removed.rebind(names[user], abbreviations[user],
+                    images[user], user % 7);
+            break;
+        default:
+            ui.remove(removed);
+            added = createAvatar(user);
+            ui.add(added);
+        }
+        rows.addLast(added);
+        return added;
+    }
+
+    private Avatar createAvatar(int row) {
+        int user = row % USER_COUNT;
+        Avatar avatar = new Avatar(names[user], images[user]);
+        avatar.setAbbreviation(abbreviations[user]);
+        avatar.setColorIndex(user % 7);
+        return avatar;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.server.StreamResource;
+import elemental.json.Json;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+/**
+ * Compares the size of the items sent to the client as objects and in the
+ * compact form.
+ * <p>
+ * The items have CDN image URLs and image resources, which are sent as URLs
+ * of the dynamic resources of the session. The size is the length of the JSON
+ * that is included in the UIDL response.
+ * <p>
+ * Large item lists are sent as JSON text, which is included in the UIDL
+ * response as an escaped string. Its size is compared with the size of the
+ * items sent as objects.
+ *
+ * @author Vaadin Ltd.
+ */
+public class AvatarGroupPayloadSizeTest {
+
+    private static final double MAX_COMPACT_SIZE_RATIO = 0.6;
+    // A backslash is added to every quote of the text
+    private static final double MAX_JSON_TEXT_SIZE_RATIO = 1.2;
+
+    private static final byte[] IMAGE = new byte[0];
+
+    @Test
+    public void compactPayloadSmaller_100Items() {
+        assertCompactPayloadSmaller(100);
+    }
+
+    @Test
+    public void compactPayloadSmaller_1000Items() {
+        assertCompactPayloadSmaller(1000);
+    }
+
+    @Test
+    public void compactPayloadSmaller_10000Items() {
+        assertCompactPayloadSmaller(10000);
+    }
+
+    @Test
+    public void jsonTextPayloadWithinRatio_10000Items() {
+        List<AvatarGroupItem> items = createItems(10000);
+        AvatarGroup avatarGroup = new AvatarGroup(items);
+
+        int objectsSize = avatarGroup.createItemsJsonArray(items).toJson()
+                .length();
+        // The text as encoded in the UIDL response
+        int textSize = Json.create(avatarGroup.writeItemsJson(items)).toJson()
+                .length();
+
+        Assert.assertTrue(String.format(
+                "%d items take %d characters as objects and %d characters "
+                        + "as JSON text, expected at most %.0f%%",
+                items.size(), objectsSize, textSize,
+                MAX_JSON_TEXT_SIZE_RATIO * 100),
+                textSize <= objectsSize * MAX_JSON_TEXT_SIZE_RATIO);
+    }
+
+    private static void assertCompactPayloadSmaller(int size) {
+        List<AvatarGroupItem> items = createItems(size);
+        AvatarGroup avatarGroup = new AvatarGroup(items);
+
+        int objectsSize = avatarGroup.createItemsJsonArray(items).toJson()
+                .length();
+        int compactSize = avatarGroup.createCompactItemsJson(items).toJson()
+                .length();
+
+        Assert.assertTrue(String.format(
+                "%d items take %d characters as objects and %d characters "
+                        + "in the compact form, expected at most %.0f%%",
+                size, objectsSize, compactSize,
+                MAX_COMPACT_SIZE_RATIO * 100),
+                compactSize <= objectsSize * MAX_COMPACT_SIZE_RATIO);
+    }
+
+    private static List<AvatarGroupItem> createItems(int size) {
+        List<AvatarGroupItem> items = AvatarGroupBenchmark.createItems(size);
+        for (int i = 1; i < size; i += 4) {
+            items.get(i).setImageResource(new StreamResource(
+                    "user-" + i + ".png",
+                    () -> new ByteArrayInputStream(IMAGE)));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.server.AbstractStreamResource;
+import com.vaadin.flow.server.StreamResource;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Retained size budgets for avatars and avatar group items.
+ * <p>
+ * The sizes are measured with JOL as the total size of the object graph
+ * reachable from the measured instance, so they depend on the JVM and its
+ * settings such as compressed references. The budgets are for a 64-bit JVM
+ * with compressed references, which is the default for heaps below 32 GB.
+ *
+ * @author Vaadin Ltd.
+ */
+public class AvatarMemoryFootprintTest {
+
+    private static final int ITEM_COUNT = 10000;
+
+    private static final long AVATAR_BUDGET = 4096;
+    private static final long EMPTY_AVATAR_GROUP_BUDGET = 4096;
+    private static final long ITEM_BUDGET = 64;
+    private static final long ITEM_WITH_DATA_BUDGET = 320;
+    private static final long ITEM_WITH_IMAGE_RESOURCE_BUDGET = 1024;
+    private static final long AVATAR_GROUP_BUDGET = EMPTY_AVATAR_GROUP_BUDGET
+            + ITEM_COUNT * ITEM_WITH_DATA_BUDGET;
+
+    // The peak retained size of the JSON text payload compared to the JSON
+    // tree of the items
+    private static final double MAX_JSON_TEXT_RETAINED_RATIO = 0.5;
+
+    private static final byte[] IMAGE = new byte[0];
+
+    @Test
+    public void avatar_withinBudget() {
+        Avatar avatar = new Avatar("User 1");
+        avatar.setAbbreviation("U1");
+        avatar.setColorIndex(1);
+
+        assertWithinBudget("Avatar", AVATAR_BUDGET, retainedSize(avatar));
+    }
+
+    @Test
+    public void emptyAvatarGroup_withinBudget() {
+        assertWithinBudget("Empty avatar group", EMPTY_AVATAR_GROUP_BUDGET,
+                retainedSize(new AvatarGroup()));
+    }
+
+    @Test
+    public void avatarGroupItem_withinBudget() {
+        // All items share the same strings to measure the item itself
+        List<AvatarGroupItem> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            AvatarGroupItem item = new AvatarGroupItem("User", "user.png");
+            item.setAbbreviation("U");
+            item.setColorIndex(i % 7);
+            items.add(item);
+        }
+
+        assertWithinBudget("Avatar group item", ITEM_BUDGET,
+                retainedSizePerItem(items));
+    }
+
+    @Test
+    public void avatarGroupItems_retainLessThanBoxedLayout() {
+        // An unboxed color index and no image resource fields
+        assertSavedPerItem(i -> i % 7, 8);
+    }
+
+    @Test
+    public void avatarGroupItemsWithUncachedColorIndexes_retainLessThanBoxedLayout() {
+        // The boxed color indexes outside of the Integer cache take 16 bytes
+        // more each
+        assertSavedPerItem(i -> i + 1000, 24);
+    }
+
+    @Test
+    public void avatarGroupItemWithData_withinBudget() {
+        assertWithinBudget("Avatar group item with data",
+                ITEM_WITH_DATA_BUDGET, retainedSizePerItem(
+                        AvatarGroupBenchmark.createItems(ITEM_COUNT)));
+    }
+
+    @Test
+    public void avatarGroupItemWithImageResource_withinBudget() {
+        List<AvatarGroupItem> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            AvatarGroupItem item = new AvatarGroupItem("User " + i);
+            item.setImageResource(new StreamResource("user-" + i + ".png",
+                    () -> new ByteArrayInputStream(IMAGE)));
+            items.add(item);
+        }
+
+        long perItem = (retainedSize(items) - retainedSize(new ArrayList<>()))
+                / ITEM_COUNT;
+        assertWithinBudget("Avatar group item with image resource",
+                ITEM_WITH_IMAGE_RESOURCE_BUDGET, perItem);
+    }
+
+    @Test
+    public void avatarGroupWithItems_withinBudget() {
+        AvatarGroup avatarGroup = new AvatarGroup(
+                AvatarGroupBenchmark.createItems(ITEM_COUNT));
+
+        assertWithinBudget("Avatar group with " + ITEM_COUNT + " items",
+                AVATAR_GROUP_BUDGET, retainedSize(avatarGroup));
+    }
+
+    @Test
+    public void jsonTextItemsPayload_retainsLessWhileSent() {
+        List<AvatarGroupItem> items = AvatarGroupBenchmark
+                .createItems(ITEM_COUNT);
+        AvatarGroup avatarGroup = new AvatarGroup(items);
+
+        // Both the payload and its encoding in the UIDL response are
+        // reachable while the response is written
+        JsonArray tree = avatarGroup.createItemsJsonArray(items);
+        long treeSize = GraphLayout.parseInstance(tree, tree.toJson())
+                .totalSize();
+        String text = avatarGroup.writeItemsJson(items);
+        long textSize = GraphLayout
+                .parseInstance(text, Json.create(text).toJson())
+                .totalSize();
+
+        Assert.assertTrue(String.format(
+                "%d items retain %d bytes as JSON text and %d bytes as a "
+                        + "JSON tree while sent, expected less than %.0f%%",
+                ITEM_COUNT, textSize, treeSize,
+                MAX_JSON_TEXT_RETAINED_RATIO * 100),
+                textSize < treeSize * MAX_JSON_TEXT_RETAINED_RATIO);
+    }
+
+    private static void assertSavedPerItem(IntUnaryOperator colorIndex,
+            long minSavedPerItem) {
+        List<AvatarGroupItem> items = new ArrayList<>(ITEM_COUNT);
+        List<BoxedLayoutItem> boxedItems = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            AvatarGroupItem item = new AvatarGroupItem("User", "user.png");
+            item.setAbbreviation("U");
+            item.setColorIndex(colorIndex.applyAsInt(i));
+            items.add(item);
+            boxedItems.add(new BoxedLayoutItem("User", "user.png", "U",
+                    colorIndex.applyAsInt(i)));
+        }
+
+        long saved = retainedSize(boxedItems) - retainedSize(items);
+        Assert.assertTrue(String.format(
+                "%d items retain %d bytes less than with the boxed layout, "
+                        + "expected at least %d",
+                ITEM_COUNT, saved, ITEM_COUNT * minSavedPerItem),
+                saved >= ITEM_COUNT * minSavedPerItem);
+    }
+
+    private static long retainedSizePerItem(List<AvatarGroupItem> items) {
+        long emptySize = retainedSize(new AvatarGroup());
+        return (retainedSize(new AvatarGroup(items)) - emptySize)
+                / items.size();
+    }
+
+    private static long retainedSize(Object root) {
+        return GraphLayout.parseInstance(root).totalSize();
+    }
+
+    private static void assertWithinBudget(String measured, long budget,
+            long size) {
+        Assert.assertTrue(String.format(
+                "%s retains %d bytes, which exceeds the budget of %d bytes",
+                measured, size, budget), size <= budget);
+    }
+
+    /**
+     * The fields of an avatar group item with a boxed color index and the
+     * image resource fields in the item itself, the layout before the items
+     * were compacted.
+     */
+    @SuppressWarnings("unused")
+    private static class BoxedLayoutItem {
+        private volatile String name;
+        private volatile String abbr;
+        private volatile String img;
+        private volatile Integer colorIndex;
+        private volatile String userId;
+        private volatile AvatarGroup host;
+        private volatile AbstractStreamResource imageResource;
+        private transient volatile Object pendingImageLoad;
+
+        private BoxedLayoutItem(String name, String img, String abbr,
+                Integer colorIndex) {
+            this.name = name;
+            this.img = img;
+            this.abbr = abbr;
+            this.colorIndex = colorIndex;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the memory saved by {@link AvatarStringPool} when many sessions
+ * display the same users.
+ * <p>
+ * Every simulated session has an avatar for the current user and an avatar
+ * group with some of the users of a shared directory. The names are copied
+ * for every session, like they would be when loaded from a database. The
+ * retained size of all the sessions is measured with JOL by walking the heap
+ * graph reachable from them, in the same way as a heap dump analyzer would.
+ *
+ * @author Vaadin Ltd.
+ */
+public class AvatarStringPoolFootprintTest {
+
+    private static final int SESSION_COUNT = 1000;
+    private static final int DIRECTORY_SIZE = 2000;
+    private static final int ITEMS_PER_SESSION = 100;
+
+    // A name and an abbreviation with their backing arrays are well above
+    // this, but the exact size depends on the JVM
+    private static final long MINIMUM_SAVING_PER_ITEM = 64;
+
+    @After
+    public void disableStringPool() {
+        AvatarStringPool.setEnabled(false);
+    }
+
+    @Test
+    public void stringPoolEnabled_sessionsRetainLessMemory() {
+        long unpooledSize = retainedSize(createSessions());
+
+        AvatarStringPool.setEnabled(true);
+        long pooledSize = retainedSize(createSessions());
+
+        long minimumSaving = MINIMUM_SAVING_PER_ITEM * SESSION_COUNT
+                * ITEMS_PER_SESSION;
+        Assert.assertTrue(String.format(
+                "%d sessions retain %d bytes with the string pool and %d "
+                        + "bytes without it, expected a saving of at least "
+                        + "%d bytes",
+                SESSION_COUNT, pooledSize, unpooledSize, minimumSaving),
+                unpooledSize - pooledSize >= minimumSaving);
+    }
+
+    private static List<Object> createSessions() {
+        List<Object> sessions = new ArrayList<>(SESSION_COUNT);
+        for (int session = 0; session < SESSION_COUNT; session++) {
+            int currentUser = session % DIRECTORY_SIZE;
+            Avatar avatar = new Avatar(getName(currentUser));
+            avatar.setAbbreviation(getAbbreviation(currentUser));
+
+            List<AvatarGroupItem> items = new ArrayList<>(ITEMS_PER_SESSION);
+            for (int i = 0; i < ITEMS_PER_SESSION; i++) {
+                int user = (session * 37 + i) % DIRECTORY_SIZE;
+                AvatarGroupItem item = new AvatarGroupItem(getName(user));
+                item.setAbbreviation(getAbbreviation(user));
+                items.add(item);
+            }
+
+            List<Object> components = new ArrayList<>(2);
+            components.add(avatar);
+            components.add(new AvatarGroup(items));
+            sessions.add(components);
+        }
+        return sessions;
+    }
+
+    private static String getName(int user) {
+        return new StringBuilder("Firstname").append(user)
+                .append(" Lastname").append(user).toString();
+    }
+
+    private static String getAbbreviation(int user) {
+        return new StringBuilder("F").append(user % 10).append('L')
+                .append(user / 10 % 10).toString();
+    }
+
+    private static long retainedSize(Object root) {
+        return GraphLayout.parseInstance(root).totalSize();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.StreamResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the bytes saved by transcoding a sample corpus of unoptimized
+ * avatar images with {@link AvatarImageTranscoder}.
+ * <p>
+ * The corpus has screenshots saved as PNG, and photos saved as JPEG at
+ * quality 100 with a large metadata segment, like the EXIF data and
+ * thumbnail that cameras embed. The images are generated so that the test
+ * does not depend on image files.
+ *
+ * @author Vaadin Ltd.
+ */
+public class AvatarTranscodingSavingsTest {
+
+    private static final int AVATAR_SIZE = 128;
+    private static final double MAX_TRANSCODED_SIZE_RATIO = 0.02;
+    private static final int METADATA_SIZE = 60000;
+
+    @After
+    public void clearCache() {
+        AvatarImageTranscoder.clearCache();
+    }
+
+    @Test
+    public void transcodeCorpus_bytesSaved() throws IOException {
+        Random random = new Random(1);
+        byte[][] corpus = { createScreenshot(1280, 800),
+                createScreenshot(1920, 1080), createPhoto(random, 2000, 1500),
+                createPhoto(random, 1200, 1600),
+                createPhoto(random, 800, 800) };
+
+        long originalSize = 0;
+        long transcodedSize = 0;
+        for (byte[] image : corpus) {
+            originalSize += image.length;
+            transcodedSize += getSize(
+                    AvatarImageTranscoder.transcode(image, AVATAR_SIZE));
+        }
+
+        Assert.assertTrue(String.format(
+                "%d images of %d bytes were transcoded to %d bytes, saving "
+                        + "%d bytes, expected at most %.0f%% of the original",
+                corpus.length, originalSize, transcodedSize,
+                originalSize - transcodedSize,
+                MAX_TRANSCODED_SIZE_RATIO * 100),
+                transcodedSize <= originalSize * MAX_TRANSCODED_SIZE_RATIO);
+    }
+
+    private static long getSize(StreamResource resource) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        resource.getWriter().accept(output, null);
+        return output.size();
+    }
+
+    private static byte[] createScreenshot(int width, int height)
+            throws IOException {
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(0x1676f3));
+        graphics.fillRect(0, 0, width, 60);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+        graphics.setColor(Color.DARK_GRAY);
+        for (int y = 100; y < height; y += 24) {
+            graphics.drawString("Lorem ipsum dolor sit amet, consectetur "
+                    + "adipiscing elit, sed do eiusmod tempor " + y, 40, y);
+        }
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private static byte[] createPhoto(Random random, int width, int height)
+            throws IOException {
+        return addMetadata(
+                AvatarSampleImages.createPhoto(random, width, height));
+    }
+
+    /**
+     * Inserts an APP1 segment after the start of image marker, where cameras
+     * store EXIF data.
+     */
+    private static byte[] addMetadata(byte[] jpeg) {
+        byte[] segment = new byte[METADATA_SIZE + 4];
+        segment[0] = (byte) 0xff;
+        segment[1] = (byte) 0xe1;
+        segment[2] = (byte) ((METADATA_SIZE + 2) >> 8);
+        segment[3] = (byte) (METADATA_SIZE + 2);
+        byte[] result = Arrays.copyOf(jpeg, jpeg.length + segment.length);
+        System.arraycopy(segment, 0, result, 2, segment.length);
+        System.arraycopy(jpeg, 2, result, 2 + segment.length,
+                jpeg.length - 2);
+        return result;
+    }
+}
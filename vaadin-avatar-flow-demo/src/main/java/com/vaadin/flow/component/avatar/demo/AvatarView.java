@@ -18,6 +18,7 @@ package com.vaadin.flow.component.avatar.demo;
 
 import com.vaadin.flow.component.Text;
 import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.avatar.AvatarFileResource;
 import com.vaadin.flow.component.checkbox.CheckboxGroup;
 import com.vaadin.flow.component.checkbox.CheckboxGroupVariant;
 import com.vaadin.flow.component.html.Div;
@@ -25,6 +26,7 @@ import com.vaadin.flow.demo.DemoView;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.StreamResource;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,6 +46,7 @@ public class AvatarView extends DemoView {
         createBasicAvatar();
         createAvatarWithCombinedProperties();
         createLocalizedAvatar();
+        createAvatarWithFileResource();
 
         addCard("Resource helper method",
                 new Text("This method is used in the examples above"));
@@ -129,6 +132,21 @@ public class AvatarView extends DemoView {
         addCard("Localized Avatar", container);
     }
 
+    private void createAvatarWithFileResource() {
+        // begin-source-example
+        // source-example-heading: Image file resource
+        Avatar avatar = new Avatar();
+        AvatarFileResource avatarResource = new AvatarFileResource(
+                new File("../vaadin-avatar-flow-demo/src/main/resources/META-INF/resources/frontend/images/user.png"));
+        avatar.setImageResource(avatarResource);
+
+        add(avatar);
+        // end-source-example
+        Div container = new Div(avatar);
+
+        addCard("Image file resource", container);
+    }
+
     // begin-source-example
     // source-example-heading: Resource helper method
 
@@ -21,12 +21,20 @@ import com.vaadin.flow.component.HasSize;
 import com.vaadin.flow.component.HasStyle;
 import com.vaadin.flow.component.HasTheme;
 import com.vaadin.flow.component.Tag;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder.TranscodedResource;
+import com.vaadin.flow.component.dependency.CssImport;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.dependency.NpmPackage;
+import com.vaadin.flow.function.SerializableSupplier;
 import com.vaadin.flow.internal.JsonSerializer;
 import com.vaadin.flow.server.AbstractStreamResource;
+import com.vaadin.flow.server.StreamResource;
 import elemental.json.JsonObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -40,6 +48,8 @@ import java.util.stream.Stream;
 @Tag("vaadin-avatar")
 @JsModule("@vaadin/vaadin-avatar/src/vaadin-avatar.js")
 @NpmPackage(value = "@vaadin/vaadin-avatar", version = "1.0.0")
+@CssImport(value = "./vaadin-avatar-flow/vaadin-avatar-placeholder.css",
+        themeFor = "vaadin-avatar")
 public class Avatar extends Component
     implements HasStyle, HasSize, HasTheme {
 
@@ -47,7 +57,8 @@ public class Avatar extends Component
      * The internationalization properties for {@link AvatarGroup}.
      */
     public static class AvatarI18n implements Serializable {
-        private String anonymous;
+        // The translation is serialized in writeObject
+        private transient String anonymous;
 
         /**
          * Gets the translated word for {@code anonymous}. It's displayed in a
@@ -73,9 +84,26 @@ public class Avatar extends Component
             this.anonymous = anonymous;
             return this;
         }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeObject(anonymous);
+        }
+
+        private void readObject(ObjectInputStream in)
+                throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            anonymous = (String) in.readObject();
+        }
     }
 
+    // The custom property of the placeholder of a transcoded image
+    static final String PLACEHOLDER_PROPERTY = "--vaadin-avatar-placeholder";
+
     private AbstractStreamResource imageResource;
+    // The external image URL when the image is served by AvatarImageProxy
+    private String proxiedImage;
+    private transient Object pendingImageLoad;
     private AvatarI18n i18n;
 
     /**
@@ -162,7 +190,7 @@ public class Avatar extends Component
      *            the name for the avatar
      */
     public void setName(String name) {
-        getElement().setProperty("name", name);
+        getElement().setProperty("name", AvatarStringPool.intern(name));
     }
 
     /**
@@ -184,7 +212,7 @@ public class Avatar extends Component
      *            the abbreviation
      */
     public void setAbbreviation(String abbr) {
-        getElement().setProperty("abbr", abbr);
+        getElement().setProperty("abbr", AvatarStringPool.intern(abbr));
     }
 
     /**
@@ -193,7 +221,8 @@ public class Avatar extends Component
      * @return the image url
      */
     public String getImage() {
-        return getElement().getAttribute("img");
+        return proxiedImage != null ? proxiedImage
+                : getElement().getAttribute("img");
     }
 
     /**
@@ -214,6 +243,9 @@ public class Avatar extends Component
      * <p>
      * Setting the image with this method resets the image resource provided
      * with {@link Avatar#setImageResource(AbstractStreamResource)}
+     * <p>
+     * An external URL is served through {@link AvatarImageProxy} if the proxy
+     * is enabled.
      *
      * @see Avatar#setImageResource(AbstractStreamResource)
      * @param url
@@ -221,12 +253,26 @@ public class Avatar extends Component
      */
     public void setImage(String url) {
         imageResource = null;
+        pendingImageLoad = null;
+        proxiedImage = null;
+        setImagePlaceholder(null);
 
         if (url == null) {
             getElement().removeAttribute("img");
-        } else {
-            getElement().setAttribute("img", url);
+            return;
         }
+        String clientUrl = AvatarImageProxy.getClientUrl(url);
+        getElement().setAttribute("img", clientUrl);
+        if (clientUrl.equals(url)) {
+            return;
+        }
+        proxiedImage = url;
+        getElement().getNode().runWhenAttached(ui -> {
+            if (url.equals(proxiedImage) && ui.getSession() != null) {
+                // The proxy is served by the handler of the session
+                AvatarResourceHandler.get(ui.getSession());
+            }
+        });
     }
 
     /**
@@ -234,6 +280,15 @@ public class Avatar extends Component
      * <p>
      * Setting the image as a resource with this method resets the image URL
      * that was set with {@link Avatar#setImage(String)}
+     * <p>
+     * A {@link StreamResource} is served by a request handler shared by all
+     * the avatars of the session, it is not registered to the stream resource
+     * registry of the session. The resource is served for as long as it is
+     * referenced by the application.
+     * <p>
+     * The placeholder of a resource created with
+     * {@link AvatarImageTranscoder#transcode(byte[], int)} is displayed in
+     * the avatar until the image has been loaded.
      *
      * @see Avatar#setImage(String)
      * @param resource
@@ -241,12 +296,76 @@ public class Avatar extends Component
      */
     public void setImageResource(AbstractStreamResource resource) {
         imageResource = resource;
+        pendingImageLoad = null;
+        proxiedImage = null;
+        setImagePlaceholder(resource instanceof TranscodedResource
+                ? ((TranscodedResource) resource).getPlaceholder()
+                : null);
         if (resource == null) {
             getElement().removeAttribute("img");
             return;
         }
+        if (!(resource instanceof StreamResource)) {
+            getElement().setAttribute("img", resource);
+            return;
+        }
+
+        getElement().setAttribute("img",
+                AvatarResourceHandler.getImageResourceUrl(resource));
+        getElement().getNode().runWhenAttached(ui -> {
+            if (imageResource == resource && ui.getSession() != null) {
+                AvatarResourceHandler.get(ui.getSession())
+                        .addImageResource(resource);
+            }
+        });
+    }
 
-        getElement().setAttribute("img", resource);
+    private void setImagePlaceholder(String placeholder) {
+        // Painted by vaadin-avatar-placeholder.css, so that the background
+        // styles of the application are not overwritten
+        if (placeholder != null) {
+            getStyle().set(PLACEHOLDER_PROPERTY, "url(" + placeholder + ")");
+        } else {
+            getStyle().remove(PLACEHOLDER_PROPERTY);
+        }
+    }
+
+    /**
+     * Sets the image for the avatar to be loaded in the background.
+     * <p>
+     * The current image is removed and the abbreviation or the initials of
+     * the name are displayed in the avatar until the image has been loaded.
+     * The loader is run with {@link AvatarImageLoader} once the avatar is
+     * attached, the loaded image is set as an image resource with the given
+     * name. The loaded image is sent to the client with the next response,
+     * server push needs to be enabled for it to be displayed without a client
+     * roundtrip.
+     * <p>
+     * Setting the image with {@link Avatar#setImage(String)} or
+     * {@link Avatar#setImageResource(AbstractStreamResource)} before the
+     * loader has completed discards the loaded image.
+     *
+     * @see AvatarImageLoader
+     * @param name
+     *            the name of the image resource, not {@code null}
+     * @param loader
+     *            the loader of the image content, not {@code null}
+     */
+    public void setImageAsync(String name,
+            SerializableSupplier<byte[]> loader) {
+        Objects.requireNonNull(name, "The image name should not be null");
+        Objects.requireNonNull(loader, "The image loader should not be null");
+        setImageResource(null);
+
+        Object imageLoad = new Object();
+        pendingImageLoad = imageLoad;
+        getElement().getNode().runWhenAttached(
+                ui -> AvatarImageLoader.load(ui, loader, image -> {
+                    if (pendingImageLoad == imageLoad) {
+                        setImageResource(new StreamResource(name,
+                                () -> new ByteArrayInputStream(image)));
+                    }
+                }));
     }
 
     /**
@@ -277,6 +396,48 @@ public class Avatar extends Component
         getElement().setProperty("colorIndex", colorIndex);
     }
 
+    /**
+     * Sets all the properties of the avatar at once, updating only the
+     * properties that differ from the current ones.
+     * <p>
+     * This allows reusing an avatar for another user, for example when the
+     * rows of a scrolling list are recycled, without creating a new component
+     * on the server. An attached avatar that is rebound keeps its element on
+     * the client, only the changed properties are sent.
+     *
+     * @see AvatarPool
+     * @param name
+     *            the name for the avatar, or {@code null} to remove the name
+     * @param abbr
+     *            the abbreviation, or {@code null} to remove the abbreviation
+     * @param url
+     *            the image url, or {@code null} to remove the image
+     * @param colorIndex
+     *            the color index, or {@code null} to remove the index
+     * @return this avatar for method chaining
+     */
+    public Avatar rebind(String name, String abbr, String url,
+            Integer colorIndex) {
+        if (!Objects.equals(getName(), name)) {
+            setName(name);
+        }
+        if (!Objects.equals(getAbbreviation(), abbr)) {
+            setAbbreviation(abbr);
+        }
+        if (imageResource != null || pendingImageLoad != null
+                || !Objects.equals(getImage(), url)) {
+            setImage(url);
+        }
+        if (!Objects.equals(getColorIndex(), colorIndex)) {
+            if (colorIndex == null) {
+                getElement().removeProperty("colorIndex");
+            } else {
+                setColorIndex(colorIndex);
+            }
+        }
+        return this;
+    }
+
     /**
      * Adds theme variants to the avatar component.
      *
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports avatar images in bulk into an {@link AvatarStore}.
+ * <p>
+ * The images are loaded, decoded, resized and encoded in parallel by
+ * {@link #getParallelism()} workers, in the same way as with
+ * {@link AvatarImageTranscoder#transcode(byte[], int)}. The ids of the images
+ * to import are passed to the workers through a bounded queue, so the
+ * importing thread waits for the workers instead of queueing all the images
+ * at once. Images that fail to load or decode are reported in the result and
+ * do not stop the import.
+ * <p>
+ * By default, a pool of daemon threads is created for each import. Any
+ * executor can be configured instead, for example a virtual thread per task
+ * executor on a runtime that supports them.
+ *
+ * @author Vaadin Ltd
+ */
+public class AvatarBulkImport {
+
+    // Identifies the end of the ids in the queue
+    private static final String END_OF_IMPORT = new String("end of import");
+
+    // How often the importing thread checks whether the workers are alive
+    // while the queue is full
+    private static final long QUEUE_OFFER_TIMEOUT = 100;
+
+    private final AvatarStore store;
+    private final int size;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 64;
+    private Executor executor;
+    private ProgressListener progressListener;
+
+    /**
+     * Loads the content of an image to import.
+     */
+    @FunctionalInterface
+    public interface ImageLoader {
+
+        /**
+         * Loads the image with the given id. Called by the workers, possibly
+         * concurrently.
+         *
+         * @param id
+         *            the id of the image
+         * @return the image content in any format supported by
+         *         {@link javax.imageio.ImageIO}
+         * @throws IOException
+         *             if the image cannot be loaded
+         */
+        byte[] load(String id) throws IOException;
+    }
+
+    /**
+     * Listener for the progress of an import.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called by the workers, possibly concurrently, after each image.
+         *
+         * @param imported
+         *            the number of images imported so far
+         * @param failed
+         *            the number of images that have failed so far
+         */
+        void progress(int imported, int failed);
+    }
+
+    /**
+     * The result of an import.
+     */
+    public static class Result {
+        private final int importedCount;
+        private final Map<String, Exception> failures;
+
+        private Result(int importedCount, Map<String, Exception> failures) {
+            this.importedCount = importedCount;
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * Gets the number of imported images.
+         *
+         * @return the number of imported images
+         */
+        public int getImportedCount() {
+            return importedCount;
+        }
+
+        /**
+         * Gets the errors of the images that could not be imported by image
+         * id.
+         *
+         * @return the errors by image id, not {@code null}
+         */
+        public Map<String, Exception> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * Creates an import into the given store, of images transcoded to the
+     * given size.
+     *
+     * @param store
+     *            the store to import the images to, not {@code null}
+     * @param size
+     *            the width and height of the imported images in pixels,
+     *            greater than zero
+     */
+    public AvatarBulkImport(AvatarStore store, int size) {
+        Objects.requireNonNull(store, "The store should not be null");
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    "The size should be greater than zero");
+        }
+        this.store = store;
+        this.size = size;
+    }
+
+    /**
+     * Sets the number of images that are imported in parallel. The default
+     * is the number of available processors.
+     *
+     * @param parallelism
+     *            the number of workers, greater than zero
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "The parallelism should be greater than zero");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the number of images that are imported in parallel.
+     *
+     * @return the number of workers
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of image ids that can wait for a worker before the
+     * importing thread is blocked. The default is {@code 64}.
+     *
+     * @param queueCapacity
+     *            the capacity of the queue, greater than zero
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "The queue capacity should be greater than zero");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets the number of image ids that can wait for a worker.
+     *
+     * @return the capacity of the queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the executor that runs the workers. The executor should be able
+     * to run {@link #getParallelism()} tasks concurrently.
+     *
+     * @param executor
+     *            the executor to use, or {@code null} to create a pool of
+     *            daemon threads for each import
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the executor that runs the workers.
+     *
+     * @return the executor, or {@code null} if a pool is created for each
+     *         import
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the listener that is notified after each imported or failed
+     * image. If the listener throws, the failure is logged and the listener
+     * is not notified again during the import.
+     *
+     * @param progressListener
+     *            the listener, or {@code null} to not report progress
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Imports the images with the given ids, blocking until all the images
+     * have been imported or have failed.
+     *
+     * @param ids
+     *            the ids of the images to import, not {@code null}
+     * @param loader
+     *            the loader of the image content by id, not {@code null}
+     * @return the result of the import
+     * @throws InterruptedException
+     *             if the importing thread is interrupted, the images that
+     *             have not been started are not imported
+     * @throws Error
+     *             if an error, such as {@link OutOfMemoryError}, stopped a
+     *             worker
+     */
+    public Result importImages(Iterable<String> ids, ImageLoader loader)
+            throws InterruptedException {
+        Objects.requireNonNull(ids, "The ids should not be null");
+        Objects.requireNonNull(loader, "The loader should not be null");
+        int workers = parallelism;
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(
+                queueCapacity);
+        AtomicInteger imported = new AtomicInteger();
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        CountDownLatch finished = new CountDownLatch(workers);
+        AtomicReference<Throwable> workerError = new AtomicReference<>();
+        ProgressListener listener = progressListener;
+        AtomicBoolean listenerFailed = new AtomicBoolean();
+
+        ExecutorService pool = executor == null
+                ? Executors.newFixedThreadPool(workers, runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "vaadin-avatar-import");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        Executor target = pool == null ? executor : pool;
+        for (int i = 0; i < workers; i++) {
+            target.execute(() -> {
+                try {
+                    String id;
+                    while ((id = queue.take()) != END_OF_IMPORT) {
+                        importImage(id, loader, imported, failures);
+                        if (listener != null && !listenerFailed.get()) {
+                            notifyProgress(listener, listenerFailed,
+                                    imported.get(), failures.size());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    // The importing thread stops waiting for the workers
+                    // once they have all stopped
+                    workerError.compareAndSet(null, e);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+
+        boolean completed = false;
+        try {
+            for (String id : ids) {
+                if (!offer(queue, Objects.requireNonNull(id,
+                        "The ids should not contain null"), finished)) {
+                    break;
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                // The images that are waiting are not imported
+                queue.clear();
+            }
+            // Not interrupted, the workers take the ends until they are done
+            for (int i = 0; i < workers; i++) {
+                offerUninterruptibly(queue, END_OF_IMPORT, finished);
+            }
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        finished.await();
+        Throwable error = workerError.get();
+        if (error instanceof Error) {
+            throw (Error) error;
+        } else if (error != null) {
+            throw new IllegalStateException("An import worker failed", error);
+        }
+        return new Result(imported.get(), failures);
+    }
+
+    private static void notifyProgress(ProgressListener listener,
+            AtomicBoolean listenerFailed, int imported, int failed) {
+        try {
+            listener.progress(imported, failed);
+        } catch (RuntimeException e) {
+            if (listenerFailed.compareAndSet(false, true)) {
+                LoggerFactory.getLogger(AvatarBulkImport.class).warn(
+                        "The progress listener of the avatar import failed, "
+                                + "it is not notified again",
+                        e);
+            }
+        }
+    }
+
+    private void importImage(String id, ImageLoader loader,
+            AtomicInteger imported, Map<String, Exception> failures) {
+        try {
+            byte[] image = loader.load(id);
+            if (image == null) {
+                throw new IOException("No image for id " + id);
+            }
+            store.putImage(id,
+                    AvatarImageTranscoder.transcodeUncached(image, size));
+            imported.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failures.put(id, e);
+        }
+    }
+
+    /**
+     * Waits until the element has been added to the queue, or until all the
+     * workers have stopped and the queue is not taken from anymore.
+     *
+     * @return {@code true} if the element was added
+     */
+    private static boolean offer(BlockingQueue<String> queue, String element,
+            CountDownLatch finished) throws InterruptedException {
+        while (!queue.offer(element, QUEUE_OFFER_TIMEOUT,
+                TimeUnit.MILLISECONDS)) {
+            if (finished.getCount() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void offerUninterruptibly(BlockingQueue<String> queue,
+            String element, CountDownLatch finished) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                offer(queue, element, finished);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.server.StreamResourceWriter;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Objects;
+
+/**
+ * Image resource for an avatar that is read from a file on the local disk.
+ * <p>
+ * The file is copied to the response with
+ * {@link Files#copy(java.nio.file.Path, java.io.OutputStream)}, and the
+ * response has the length of the file as its content length and the MIME
+ * type of the file name as its content type.
+ *
+ * @see Avatar#setImageResource(com.vaadin.flow.server.AbstractStreamResource)
+ * @see AvatarGroup.AvatarGroupItem#setImageResource(com.vaadin.flow.server.AbstractStreamResource)
+ * @author Vaadin Ltd
+ */
+public class AvatarFileResource extends StreamResource {
+
+    private final File file;
+
+    /**
+     * Creates a resource for the given image file, named by the name of the
+     * file.
+     *
+     * @param file
+     *            the image file, not {@code null}
+     */
+    public AvatarFileResource(File file) {
+        this(Objects.requireNonNull(file, "The file should not be null")
+                .getName(), file);
+    }
+
+    /**
+     * Creates a resource with the given name for the given image file. The
+     * MIME type of the image is resolved from the name.
+     *
+     * @param name
+     *            the name of the resource, not {@code null}
+     * @param file
+     *            the image file, not {@code null}
+     */
+    public AvatarFileResource(String name, File file) {
+        super(name, createWriter(
+                Objects.requireNonNull(file, "The file should not be null")));
+        this.file = file;
+    }
+
+    /**
+     * Gets the image file of the resource.
+     *
+     * @return the image file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    private static StreamResourceWriter createWriter(File file) {
+        return (stream, session) -> Files.copy(file.toPath(), stream);
+    }
+}
@@ -16,19 +16,27 @@
 
 package com.vaadin.flow.component.avatar;
 
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.HasSize;
 import com.vaadin.flow.component.HasStyle;
 import com.vaadin.flow.component.HasTheme;
 import com.vaadin.flow.component.Tag;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder.TranscodedResource;
+import com.vaadin.flow.component.dependency.CssImport;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.dependency.NpmPackage;
+import com.vaadin.flow.component.page.PendingJavaScriptResult;
+import com.vaadin.flow.function.SerializableRunnable;
+import com.vaadin.flow.function.SerializableSupplier;
 import com.vaadin.flow.internal.JsonSerializer;
-import com.vaadin.flow.internal.NodeOwner;
-import com.vaadin.flow.internal.StateTree;
 import com.vaadin.flow.server.AbstractStreamResource;
 import com.vaadin.flow.server.Command;
 import com.vaadin.flow.server.StreamRegistration;
+import com.vaadin.flow.server.StreamResource;
 import com.vaadin.flow.server.StreamResourceRegistry;
 import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.shared.Registration;
@@ -36,6 +44,10 @@ import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
@@ -43,40 +55,77 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Server-side component for the <code>vaadin-avatar-group</code> element.
+ * <p>
+ * The items of the avatar group can be updated from background threads
+ * without {@link UI#access(Command)}. The latest snapshot of the items is sent
+ * to the client before the next response. No items are sent and no image
+ * resources are registered while the component is detached or invisible.
+ * <p>
+ * Large lists of items are written directly as JSON text, which is parsed on
+ * the client side, instead of building a tree of JSON values on the server.
  *
  * @author Vaadin Ltd
  */
 @Tag("vaadin-avatar-group")
 @JsModule("@vaadin/vaadin-avatar/src/vaadin-avatar-group.js")
 @NpmPackage(value = "@vaadin/vaadin-avatar", version = "1.0.0")
+@CssImport(value = "./vaadin-avatar-flow/vaadin-avatar-placeholder.css",
+        themeFor = "vaadin-avatar")
 public class AvatarGroup extends Component
     implements HasStyle, HasSize, HasTheme {
 
     /**
      * Item to be set as an avatar for the avatar group.
+     * <p>
+     * The properties of an item can be updated from any thread, the changes
+     * are picked up by the host avatar group before the next response to the
+     * client.
+     * <p>
+     * Only the properties of an item are serialized, the item is attached to
+     * its avatar group again when the avatar group is deserialized.
      *
      * @author Vaadin Ltd
      */
     public static class AvatarGroupItem implements Serializable  {
-        private String name;
-        private String abbr;
-        private String img;
-        private Integer colorIndex;
+        private static final int NO_COLOR_INDEX = Integer.MIN_VALUE;
+
+        private static final int NAME = 1;
+        private static final int ABBREVIATION = 1 << 1;
+        private static final int IMAGE = 1 << 2;
+        private static final int IMAGE_RESOURCE = 1 << 3;
+        private static final int COLOR_INDEX = 1 << 4;
+        private static final int USER_ID = 1 << 5;
 
-        private AvatarGroup host;
-        private StreamRegistration resourceRegistration;
-        private Registration pendingRegistration;
-        private Command pendingHandle;
+        // The properties are serialized in writeObject
+        private transient volatile String name;
+        private transient volatile String abbr;
+        private transient volatile String img;
+        private transient volatile int colorIndex = NO_COLOR_INDEX;
+        private transient volatile String userId;
 
-        private AbstractStreamResource imageResource;
+        // Set by the avatar group when it is deserialized
+        private transient volatile AvatarGroup host;
+
+        // Only allocated for the items that use an image resource
+        private transient volatile ImageResourceState imageResourceState;
 
         /**
          * Creates a new empty avatar group item.
@@ -134,7 +183,7 @@ public class AvatarGroup extends Component
          *            the name for the avatar
          */
         public void setName(String name) {
-            this.name = name;
+            this.name = AvatarStringPool.intern(name);
             if (getHost() != null) {
                 getHost().setClientItems();
             }
@@ -159,7 +208,7 @@ public class AvatarGroup extends Component
          *            the abbreviation
          */
         public void setAbbreviation(String abbr) {
-            this.abbr = abbr;
+            this.abbr = AvatarStringPool.intern(abbr);
             if (getHost() != null) {
                 getHost().setClientItems();
             }
@@ -181,7 +230,8 @@ public class AvatarGroup extends Component
          * not been set
          */
         public AbstractStreamResource getImageResource() {
-            return imageResource;
+            ImageResourceState state = imageResourceState;
+            return state == null ? null : state.resource;
         }
 
         /**
@@ -192,13 +242,16 @@ public class AvatarGroup extends Component
          * <p>
          * Setting the image with this method resets the image resource provided
          * with {@link AvatarGroupItem#setImageResource(AbstractStreamResource)}
+         * <p>
+         * An external URL is served through {@link AvatarImageProxy} if the
+         * proxy is enabled.
          *
          * @see AvatarGroupItem#setImageResource(AbstractStreamResource)
          * @param url
          *            the image url
          */
         public void setImage(String url) {
-            unsetResource();
+            imageResourceState = null;
 
             this.img = url;
             if (getHost() != null) {
@@ -211,116 +264,84 @@ public class AvatarGroup extends Component
          * <p>
          * Setting the image as a resource with this method resets the image URL
          * that was set with {@link AvatarGroupItem#setImage(String)}
+         * <p>
+         * A {@link StreamResource} is served by a request handler shared by
+         * all the avatars of the session once the avatar group is attached
+         * and visible, for as long as the resource is referenced by the
+         * application. Other resources are registered when the avatar group
+         * is attached and visible, and unregistered when the avatar group is
+         * detached.
+         *
+         * <p>
+         * The placeholder of a resource created with
+         * {@link AvatarImageTranscoder#transcode(byte[], int)} is displayed
+         * in the avatar until the image has been loaded.
          *
          * @see AvatarGroupItem#setImage(String)
          * @param resource
          *            the resource value or {@code null} to remove the resource
          */
         public void setImageResource(AbstractStreamResource resource) {
-            imageResource = resource;
-
             if (resource == null) {
-                unsetResource();
-                return;
-            }
-
-            // The following is the copy of functionality from the ElementAttributeMap
-            doSetResource(resource);
-            if (getHost() != null && getHost().getElement().getNode().isAttached()) {
-                registerResource(resource);
+                imageResourceState = null;
+                this.img = null;
             } else {
-                deferRegistration(resource);
+                imageResourceState = new ImageResourceState(resource, null);
+                this.img = getTargetUri(resource).toASCIIString();
             }
             if (getHost() != null) {
                 getHost().setClientItems();
             }
         }
 
-        private void doSetResource(AbstractStreamResource resource) {
-            final URI targetUri;
-            if (VaadinSession.getCurrent() != null) {
-                final StreamResourceRegistry resourceRegistry = VaadinSession
-                        .getCurrent().getResourceRegistry();
-                targetUri = resourceRegistry.getTargetURI(resource);
-            } else {
-                targetUri = StreamResourceRegistry.getURI(resource);
-            }
-            this.img = targetUri.toASCIIString();
-        }
-
-        private void unregisterResource() {
-            StreamRegistration registration = resourceRegistration;
-            Registration handle = pendingRegistration;
-            if (handle != null) {
-                handle.remove();
-            }
-            if (registration != null) {
-                registration.unregister();
-            }
-            this.img = null;
-        }
-
-        private void deferRegistration(AbstractStreamResource resource) {
-            if (pendingRegistration != null) {
-                return;
-            }
-
-            pendingHandle = () -> {
-                doSetResource(resource);
-                registerResource(resource);
-            };
-
-            if (getHost() != null) {
-                attachPendingRegistration(pendingHandle);
-                pendingHandle = null;
-            }
-        }
-
-        private void attachPendingRegistration(Command pendingHandle) {
-            if (getHost().getElement().getNode().isAttached()) {
-                pendingHandle.execute();
-                return;
-            }
-            Registration handle = getHost().getElement().getNode()
-                    // Do not convert to lambda
-                    .addAttachListener(pendingHandle);
-            pendingRegistration = handle;
+        /**
+         * Sets the image for the avatar to be loaded in the background.
+         * <p>
+         * The current image is removed and the abbreviation or the initials
+         * of the name are displayed in the avatar until the image has been
+         * loaded. The loader is run with {@link AvatarImageLoader}, the loaded
+         * image is set as an image resource with the given name. Images
+         * loaded for the items of the same avatar group at about the same
+         * time are sent to the client in one update.
+         * <p>
+         * Setting the image with {@link AvatarGroupItem#setImage(String)} or
+         * {@link AvatarGroupItem#setImageResource(AbstractStreamResource)}
+         * before the loader has completed discards the loaded image.
+         *
+         * @see AvatarImageLoader
+         * @param name
+         *            the name of the image resource, not {@code null}
+         * @param loader
+         *            the loader of the image content, not {@code null}
+         */
+        public void setImageAsync(String name,
+                SerializableSupplier<byte[]> loader) {
+            Objects.requireNonNull(name, "The image name should not be null");
+            Objects.requireNonNull(loader,
+                    "The image loader should not be null");
+            setImageResource(null);
+
+            Object imageLoad = new Object();
+            imageResourceState = new ImageResourceState(null, imageLoad);
+            AvatarImageLoader.load(loader, image -> {
+                ImageResourceState state = imageResourceState;
+                if (state != null && state.pendingLoad == imageLoad) {
+                    setImageResource(new StreamResource(name,
+                            () -> new ByteArrayInputStream(image)));
+                }
+            });
         }
 
-        private void registerResource(AbstractStreamResource resource) {
-            assert resourceRegistration == null;
-            StreamRegistration registration = getSession().getResourceRegistry()
-                    .registerResource(resource);
-            resourceRegistration = registration;
-            Registration handle = pendingRegistration;
-            if (handle != null) {
-                handle.remove();
+        private static URI getTargetUri(AbstractStreamResource resource) {
+            if (resource instanceof StreamResource) {
+                return URI.create(
+                        AvatarResourceHandler.getImageResourceUrl(resource));
             }
-            pendingRegistration = getHost().getElement().getNode().addDetachListener(
-                    // Do not convert to lambda
-                    new Command() {
-                        @Override
-                        public void execute() {
-                            AvatarGroupItem.this.unsetResource();
-                        }
-                    });
-        }
-
-        private void unsetResource() {
-            imageResource = null;
-            StreamRegistration registration = resourceRegistration;
-            Optional<AbstractStreamResource> resource = Optional.empty();
-            if (registration != null) {
-                resource = Optional.ofNullable(registration.getResource());
+            VaadinSession session = VaadinSession.getCurrent();
+            if (session != null) {
+                return session.getResourceRegistry().getTargetURI(resource);
             }
-            unregisterResource();
-            resource.ifPresent(this::deferRegistration);
-        }
-
-        private VaadinSession getSession() {
-            NodeOwner owner = getHost().getElement().getNode().getOwner();
-            assert owner instanceof StateTree;
-            return ((StateTree) owner).getUI().getSession();
+            return StreamResourceRegistry.getURI(resource);
         }
 
         /**
@@ -329,7 +350,8 @@ public class AvatarGroup extends Component
          * @return the color index or {@code null} if the index has not been set
          */
         public Integer getColorIndex() {
-            return colorIndex;
+            int index = colorIndex;
+            return index == NO_COLOR_INDEX ? null : index;
         }
 
         /**
@@ -343,7 +365,34 @@ public class AvatarGroup extends Component
          *            the color index or {@code null} to remove the index
          */
         public void setColorIndex(Integer colorIndex) {
-            this.colorIndex = colorIndex;
+            this.colorIndex = colorIndex == null ? NO_COLOR_INDEX : colorIndex;
+            if (getHost() != null) {
+                getHost().setClientItems();
+            }
+        }
+
+        /**
+         * Gets the id of the user of the avatar group item.
+         *
+         * @return the user id or {@code null} if the id has not been set
+         */
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Sets the id of the user of the avatar group item.
+         * <p>
+         * The user id is not sent to the client. It is used to fetch the
+         * image of the avatar with the {@link AvatarImageProvider} of the
+         * avatar group if no image has been set for the item.
+         *
+         * @see AvatarGroup#setImageProvider(AvatarImageProvider)
+         * @param userId
+         *            the user id or {@code null} to remove the id
+         */
+        public void setUserId(String userId) {
+            this.userId = userId;
             if (getHost() != null) {
                 getHost().setClientItems();
             }
@@ -355,9 +404,87 @@ public class AvatarGroup extends Component
 
         private void setHost(AvatarGroup host) {
             this.host = host;
-            if (pendingHandle != null) {
-                attachPendingRegistration(pendingHandle);
-                pendingHandle = null;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            String currentName = name;
+            String currentAbbr = abbr;
+            String currentImg = img;
+            int currentColorIndex = colorIndex;
+            String currentUserId = userId;
+            AbstractStreamResource resource = getImageResource();
+
+            int fields = 0;
+            fields |= currentName == null ? 0 : NAME;
+            fields |= currentAbbr == null ? 0 : ABBREVIATION;
+            // The URL of an image resource is computed again on read
+            fields |= currentImg == null || resource != null ? 0 : IMAGE;
+            fields |= resource == null ? 0 : IMAGE_RESOURCE;
+            fields |= currentColorIndex == NO_COLOR_INDEX ? 0 : COLOR_INDEX;
+            fields |= currentUserId == null ? 0 : USER_ID;
+            out.writeByte(fields);
+
+            // Strings are written as objects so that the strings shared by
+            // many items are written only once
+            if ((fields & NAME) != 0) {
+                out.writeObject(currentName);
+            }
+            if ((fields & ABBREVIATION) != 0) {
+                out.writeObject(currentAbbr);
+            }
+            if ((fields & IMAGE) != 0) {
+                out.writeObject(currentImg);
+            }
+            if ((fields & IMAGE_RESOURCE) != 0) {
+                out.writeObject(resource);
+            }
+            if ((fields & COLOR_INDEX) != 0) {
+                out.writeInt(currentColorIndex);
+            }
+            if ((fields & USER_ID) != 0) {
+                out.writeObject(currentUserId);
+            }
+        }
+
+        private void readObject(ObjectInputStream in)
+                throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            int fields = in.readByte();
+            if ((fields & NAME) != 0) {
+                name = AvatarStringPool.intern((String) in.readObject());
+            }
+            if ((fields & ABBREVIATION) != 0) {
+                abbr = AvatarStringPool.intern((String) in.readObject());
+            }
+            if ((fields & IMAGE) != 0) {
+                img = (String) in.readObject();
+            }
+            if ((fields & IMAGE_RESOURCE) != 0) {
+                AbstractStreamResource resource =
+                        (AbstractStreamResource) in.readObject();
+                imageResourceState = new ImageResourceState(resource, null);
+                img = getTargetUri(resource).toASCIIString();
+            }
+            colorIndex = (fields & COLOR_INDEX) != 0 ? in.readInt()
+                    : NO_COLOR_INDEX;
+            if ((fields & USER_ID) != 0) {
+                userId = (String) in.readObject();
+            }
+        }
+
+        /**
+         * Immutable image resource state of an item, replaced as a whole so
+         * that it can be read from any thread.
+         */
+        private static class ImageResourceState {
+            private final AbstractStreamResource resource;
+            private final Object pendingLoad;
+
+            private ImageResourceState(AbstractStreamResource resource,
+                    Object pendingLoad) {
+                this.resource = resource;
+                this.pendingLoad = pendingLoad;
             }
         }
     }
@@ -366,8 +493,9 @@ public class AvatarGroup extends Component
      * The internationalization properties for {@link AvatarGroup}.
      */
     public static class AvatarGroupI18n implements Serializable {
-        private String anonymous;
-        private HashMap<String, String> activeUsers = new HashMap();
+        // The translations are serialized in writeObject
+        private transient String anonymous;
+        private transient HashMap<String, String> activeUsers = new HashMap();
 
         /**
          * Gets the translated word for {@code anonymous}. It's displayed in a
@@ -448,13 +576,198 @@ public class AvatarGroup extends Component
             activeUsers.put("many", manyActiveUsers);
             return this;
         }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeObject(anonymous);
+            out.writeObject(getOneActiveUser());
+            out.writeObject(getManyActiveUsers());
+        }
+
+        private void readObject(ObjectInputStream in)
+                throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            anonymous = (String) in.readObject();
+            activeUsers = new HashMap<>();
+            String oneActiveUser = (String) in.readObject();
+            if (oneActiveUser != null) {
+                activeUsers.put("one", oneActiveUser);
+            }
+            String manyActiveUsers = (String) in.readObject();
+            if (manyActiveUsers != null) {
+                activeUsers.put("many", manyActiveUsers);
+            }
+        }
     }
 
-    private List<AvatarGroupItem> items = Collections.emptyList();
-    private boolean pendingUpdate = false;
+    // The items are serialized in writeObject
+    private transient ReentrantLock itemsLock = new ReentrantLock();
+    private transient volatile List<AvatarGroupItem> items = Collections
+            .emptyList();
+
+    private static final ScheduledThreadPoolExecutor UPDATE_SCHEDULER =
+            createUpdateScheduler();
+
+    private final AtomicBoolean pendingUpdate = new AtomicBoolean();
+    private boolean flushScheduled;
+    private volatile UI ui;
+
+    private int clientUpdateInterval;
+    private long lastClientUpdate = Long.MIN_VALUE;
+    private transient ScheduledFuture<?> trailingUpdate;
+
+    private final Map<AbstractStreamResource, StreamRegistration>
+            resourceRegistrations = new IdentityHashMap<>();
+
+    private AvatarImageProvider imageProvider;
+    // Serialized, the handler of the session only references the images
+    // weakly and the URLs of the images are already on the client
+    private final Map<String, AbstractStreamResource> providedImages =
+            new HashMap<>();
 
     private AvatarGroupI18n i18n;
 
+    private boolean compactItemsPayload;
+
+    private boolean jsonTextItemsPayload;
+
+    private int progressiveChunkSize;
+    private int itemsUpdateId;
+
+    private boolean lazyOverflow;
+
+    private boolean placeholdersPainted;
+
+    private final List<SerializableRunnable> itemsSentListeners =
+            new CopyOnWriteArrayList<>();
+
+    private static final int OVERFLOW_PAGE_SIZE = 50;
+
+    // The overflow items are placeholders until the overlay is opened, then
+    // they are fetched from the server one page at a time. The overlay is
+    // an internal element of vaadin-avatar-group 1.0.0, the version pinned by
+    // @NpmPackage. Without it all the pages are fetched right away.
+    private static final String SET_VISIBLE_ITEMS = "const items = $0;"
+            + "const loaded = items.length;"
+            + "while (items.length < $1) {"
+            + "  items.push({});"
+            + "}"
+            + "this.items = items;"
+            + "this.__overflowUpdateId = $2;"
+            + "this.__overflowLoaded = loaded;"
+            + "if (!this.__loadOverflowPage) {"
+            + "  this.__loadOverflowPage = () => {"
+            + "    const updateId = this.__overflowUpdateId;"
+            + "    const offset = this.__overflowLoaded;"
+            + "    if (this.__overflowLoading || offset >= this.items.length) {"
+            + "      return;"
+            + "    }"
+            + "    this.__overflowLoading = true;"
+            + "    this.$server.fetchOverflowItems(updateId, offset, $3)"
+            + "      .then(page => {"
+            + "        this.__overflowLoading = false;"
+            + "        if (updateId !== this.__overflowUpdateId"
+            + "            || page.length === 0) {"
+            + "          return;"
+            + "        }"
+            + "        const items = this.items.slice();"
+            + "        page.forEach((item, i) => items[offset + i] = item);"
+            + "        this.__overflowLoaded = offset + page.length;"
+            + "        this.items = items;"
+            + "        if (!this.$.overlay || this.$.overlay.opened) {"
+            + "          this.__loadOverflowPage();"
+            + "        }"
+            + "      }, () => this.__overflowLoading = false);"
+            + "  };"
+            + "  if (this.$.overlay) {"
+            + "    this.$.overlay.addEventListener('opened-changed', e => {"
+            + "      if (e.detail.value) {"
+            + "        this.__loadOverflowPage();"
+            + "      }"
+            + "    });"
+            + "  }"
+            + "}"
+            + "if (!this.$.overlay) {"
+            + "  this.__loadOverflowPage();"
+            + "}";
+
+    // The items that have not been sent yet are empty until their chunk
+    private static final String SET_FIRST_ITEMS_CHUNK = "const items = $0;"
+            + "while (items.length < $1) {"
+            + "  items.push({});"
+            + "}"
+            + "this.items = items;";
+
+    private static final String SET_ITEMS_CHUNK = "const items = "
+            + "this.items.slice();"
+            + "$0.forEach((item, i) => items[$1 + i] = item);"
+            + "this.items = items;";
+
+    // When the JSON text payload is enabled, items are sent as JSON text from
+    // this number of items on, so that no JSON tree of the items is built on
+    // the server. The text is escaped as a string in the response, which adds
+    // a backslash per quote, about a tenth of the items size as measured by
+    // AvatarGroupPayloadSizeTest.
+    private static final int JSON_TEXT_ITEMS_THRESHOLD = 5000;
+
+    // Shorter image URL prefixes, such as "https://", are not worth an index
+    private static final int MIN_IMAGE_PREFIX_LENGTH = 8;
+
+    private static final String EXPAND_COMPACT_ITEMS = "const p = $0;"
+            + "const items = [];"
+            + "for (let i = 0; i < p.size; i++) {"
+            + "  const item = {};"
+            + "  if (p.name && p.name[i] != null) item.name = p.name[i];"
+            + "  if (p.abbr && p.abbr[i] != null) item.abbr = p.abbr[i];"
+            + "  if (p.img && p.img[i] != null) {"
+            + "    const prefix = p.imgPrefix ? p.imgPrefix[i] : -1;"
+            + "    item.img = (prefix >= 0 ? p.prefixes[prefix] : '')"
+            + "        + p.img[i];"
+            + "  }"
+            + "  if (p.colorIndex && p.colorIndex[i] != null) {"
+            + "    item.colorIndex = p.colorIndex[i];"
+            + "  }"
+            + "  if (p.placeholder && p.placeholder[i] != null) {"
+            + "    item.placeholder = p.placeholder[i];"
+            + "  }"
+            + "  items.push(item);"
+            + "}"
+            + "this.items = items;";
+
+    // The avatars are rendered by the web component, which does not know
+    // about placeholders. Whenever the avatars are rendered, the placeholder
+    // of the item of each avatar is set to the same custom property as for
+    // Avatar. The avatars are matched to their items with the dom-repeat
+    // template of vaadin-avatar-group 1.0.0, the version pinned by
+    // @NpmPackage. Without the template no placeholders are shown.
+    private static final String PAINT_PLACEHOLDERS =
+            "if (!this.__paintPlaceholders) {"
+            + "  this.__paintPlaceholders = () => {"
+            + "    const repeat = this.shadowRoot.querySelector("
+            + "        'dom-repeat, template[is=\"dom-repeat\"]');"
+            + "    if (!repeat || typeof repeat.modelForElement"
+            + "        !== 'function') {"
+            + "      return;"
+            + "    }"
+            + "    this.shadowRoot.querySelectorAll('vaadin-avatar')"
+            + "        .forEach(avatar => {"
+            + "      const model = repeat.modelForElement(avatar);"
+            + "      const placeholder = model && model.item"
+            + "          && model.item.placeholder;"
+            + "      if (placeholder) {"
+            + "        avatar.style.setProperty('" + Avatar.PLACEHOLDER_PROPERTY
+            + "', 'url(' + placeholder + ')');"
+            + "      } else {"
+            + "        avatar.style.removeProperty('"
+            + Avatar.PLACEHOLDER_PROPERTY + "');"
+            + "      }"
+            + "    });"
+            + "  };"
+            + "  this.shadowRoot.addEventListener('dom-change',"
+            + "      this.__paintPlaceholders);"
+            + "}"
+            + "requestAnimationFrame(this.__paintPlaceholders);";
+
     /**
      * Creates an empty avatar group component.
      */
@@ -479,20 +792,38 @@ public class AvatarGroup extends Component
 
     /**
      * Sets the items that will be displayed as avatars.
+     * <p>
+     * This method can be called from any thread.
      *
      * @param items
      *            the items to set
      */
     public void setItems(Collection<AvatarGroupItem> items) {
-        this.items.forEach(item -> item.setHost(null));
-
-        this.items = new ArrayList<>(items);
-        items.stream().forEach(item -> item.setHost(this));
+        itemsLock.lock();
+        try {
+            replaceItems(items);
+        } finally {
+            itemsLock.unlock();
+        }
         setClientItems();
     }
 
+    /**
+     * Publishes the new items without notifying the client, which is done
+     * after releasing the items lock that the caller holds.
+     */
+    private void replaceItems(Collection<AvatarGroupItem> items) {
+        List<AvatarGroupItem> newItems = Collections
+                .unmodifiableList(new ArrayList<>(items));
+        this.items.forEach(item -> item.setHost(null));
+        this.items = newItems;
+        newItems.forEach(item -> item.setHost(this));
+    }
+
     /**
      * Sets the items that will be displayed as avatars.
+     * <p>
+     * This method can be called from any thread.
      *
      * @param items
      *            the items to set
@@ -501,20 +832,338 @@ public class AvatarGroup extends Component
         setItems(Arrays.asList(items));
     }
 
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        ui = attachEvent.getUI();
+        if (pendingUpdate.get()) {
+            scheduleClientUpdate(ui);
+        }
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        ui = null;
+        // Executions of detached nodes are dropped
+        flushScheduled = false;
+        if (trailingUpdate != null) {
+            trailingUpdate.cancel(false);
+            trailingUpdate = null;
+        }
+        unregisterResources();
+        placeholdersPainted = false;
+        // Send a fresh snapshot with re-registered resources on attach
+        pendingUpdate.set(true);
+        super.onDetach(detachEvent);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The items are not sent to the client and the image resources of the
+     * items are not registered while the avatar group is invisible. The
+     * latest items are sent once the avatar group is made visible again.
+     */
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        UI currentUi = ui;
+        if (visible && currentUi != null && pendingUpdate.get()) {
+            scheduleClientUpdate(currentUi);
+        }
+    }
+
     private void setClientItems() {
-        if (!pendingUpdate) {
-            pendingUpdate = true;
-            getElement().getNode().runWhenAttached(ui ->
-                    ui.beforeClientResponse(this,
-                            ctx -> {
-                                getElement().setPropertyJson("items",
-                                        createItemsJsonArray(items));
-                                pendingUpdate = false;
-                            }));
+        if (!pendingUpdate.compareAndSet(false, true)) {
+            return;
+        }
+        UI currentUi = ui;
+        if (currentUi == null) {
+            // Sent in onAttach
+            return;
+        }
+        VaadinSession session = currentUi.getSession();
+        if (session == null || session.hasLock()) {
+            scheduleClientUpdate(currentUi);
+        } else {
+            currentUi.access(() -> scheduleClientUpdate(currentUi));
+        }
+    }
+
+    private void scheduleClientUpdate(UI targetUi) {
+        if (flushScheduled || trailingUpdate != null || targetUi != ui
+                || !isVisible()) {
+            // Sent in setVisible when revealed
+            return;
+        }
+        long delay = getRemainingUpdateDelay();
+        if (delay > 0) {
+            trailingUpdate = UPDATE_SCHEDULER.schedule(
+                    () -> targetUi.access(() -> {
+                        trailingUpdate = null;
+                        scheduleClientUpdate(targetUi);
+                    }), delay, TimeUnit.NANOSECONDS);
+            return;
+        }
+        flushScheduled = true;
+        targetUi.beforeClientResponse(this, ctx -> {
+            flushScheduled = false;
+            if (isVisible() && pendingUpdate.getAndSet(false)) {
+                lastClientUpdate = System.nanoTime();
+                List<AvatarGroupItem> snapshot = items;
+                fetchProvidedImages(snapshot);
+                updateResourceRegistrations(ctx.getUI().getSession(),
+                        snapshot);
+                sendItems(snapshot);
+                itemsSentListeners.forEach(Runnable::run);
+            }
+        });
+    }
+
+    /**
+     * Adds a listener that is run with the session locked each time the
+     * items have been sent to the client.
+     */
+    Registration addItemsSentListener(SerializableRunnable listener) {
+        itemsSentListeners.add(listener);
+        return () -> itemsSentListeners.remove(listener);
+    }
+
+    private void sendItems(List<AvatarGroupItem> snapshot) {
+        // Stops sending the chunks and overflow pages of a previous update
+        itemsUpdateId++;
+        Integer maxItemsVisible = getMaxItemsVisible();
+        if (lazyOverflow && maxItemsVisible != null
+                && snapshot.size() > maxItemsVisible) {
+            getElement().removeProperty("items");
+            getElement().executeJs(SET_VISIBLE_ITEMS,
+                    createItemsJsonArray(
+                            snapshot.subList(0, maxItemsVisible)),
+                    snapshot.size(), itemsUpdateId, OVERFLOW_PAGE_SIZE);
+        } else if (compactItemsPayload) {
+            getElement().executeJs(EXPAND_COMPACT_ITEMS,
+                    createCompactItemsJson(snapshot));
+        } else if (progressiveChunkSize > 0
+                && snapshot.size() > progressiveChunkSize) {
+            getElement().removeProperty("items");
+            sendFirstChunk(snapshot, progressiveChunkSize);
+        } else if (jsonTextItemsPayload
+                && snapshot.size() >= JSON_TEXT_ITEMS_THRESHOLD) {
+            getElement().removeProperty("items");
+            getElement().executeJs("this.items = JSON.parse($0)",
+                    writeItemsJson(snapshot));
+        } else {
+            getElement().setPropertyJson("items",
+                    createItemsJsonArray(snapshot));
+        }
+        // Painted on each render once installed for the client element
+        if (!placeholdersPainted && snapshot.stream()
+                .anyMatch(item -> getClientPlaceholder(item) != null)) {
+            placeholdersPainted = true;
+            getElement().executeJs(PAINT_PLACEHOLDERS);
+        }
+    }
+
+    @ClientCallable
+    private JsonArray fetchOverflowItems(int updateId, int offset,
+            int limit) {
+        List<AvatarGroupItem> snapshot = items;
+        if (!lazyOverflow || updateId != itemsUpdateId || offset < 0
+                || offset >= snapshot.size() || limit <= 0) {
+            return Json.createArray();
+        }
+        int end = Math.min(snapshot.size(),
+                offset + Math.min(limit, OVERFLOW_PAGE_SIZE));
+        return createItemsJsonArray(snapshot.subList(offset, end));
+    }
+
+    private void sendFirstChunk(List<AvatarGroupItem> snapshot,
+            int chunkSize) {
+        int updateId = itemsUpdateId;
+        Integer maxItemsVisible = getMaxItemsVisible();
+        int end = Math.min(snapshot.size(), Math.max(chunkSize,
+                maxItemsVisible == null ? 0 : maxItemsVisible));
+        getElement()
+                .executeJs(SET_FIRST_ITEMS_CHUNK,
+                        createItemsJsonArray(snapshot.subList(0, end)),
+                        snapshot.size())
+                .then(result -> sendNextChunk(updateId, snapshot, end,
+                        chunkSize));
+    }
+
+    private void sendNextChunk(int updateId, List<AvatarGroupItem> snapshot,
+            int start, int chunkSize) {
+        if (updateId != itemsUpdateId || ui == null) {
+            return;
+        }
+        int end = Math.min(snapshot.size(), start + chunkSize);
+        PendingJavaScriptResult result = getElement().executeJs(
+                SET_ITEMS_CHUNK,
+                createItemsJsonArray(snapshot.subList(start, end)), start);
+        if (end < snapshot.size()) {
+            result.then(value -> sendNextChunk(updateId, snapshot, end,
+                    chunkSize));
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        List<AvatarGroupItem> snapshot = items;
+        out.writeInt(snapshot.size());
+        for (AvatarGroupItem item : snapshot) {
+            out.writeObject(item);
+        }
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        itemsLock = new ReentrantLock();
+        int size = in.readInt();
+        List<AvatarGroupItem> newItems = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            AvatarGroupItem item = (AvatarGroupItem) in.readObject();
+            item.setHost(this);
+            newItems.add(item);
+        }
+        items = Collections.unmodifiableList(newItems);
+        // The trailing update is not serialized, a pending update is
+        // scheduled again once the UI has been restored too
+        flushScheduled = false;
+        in.registerValidation(() -> {
+            UI restoredUi = ui;
+            if (restoredUi != null && pendingUpdate.get()) {
+                scheduleClientUpdate(restoredUi);
+            }
+        }, 0);
+    }
+
+    private long getRemainingUpdateDelay() {
+        if (clientUpdateInterval == 0 || lastClientUpdate == Long.MIN_VALUE) {
+            return 0;
+        }
+        long interval = TimeUnit.MILLISECONDS.toNanos(clientUpdateInterval);
+        long elapsed = System.nanoTime() - lastClientUpdate;
+        if (elapsed < 0) {
+            // Restored from another JVM
+            return interval;
+        }
+        return Math.max(0, interval - elapsed);
+    }
+
+    private static ScheduledThreadPoolExecutor createUpdateScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                1, runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "vaadin-avatar-group-updates");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private void fetchProvidedImages(List<AvatarGroupItem> snapshot) {
+        if (imageProvider == null) {
+            return;
+        }
+        Set<String> userIds = new LinkedHashSet<>();
+        for (AvatarGroupItem item : snapshot) {
+            if (item.getUserId() != null && item.getImage() == null) {
+                userIds.add(item.getUserId());
+            }
+        }
+        providedImages.keySet().retainAll(userIds);
+        userIds.removeAll(providedImages.keySet());
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<String, AbstractStreamResource> images = imageProvider
+                .fetchImages(Collections.unmodifiableSet(userIds));
+        // Users without an image are cached too so they are not fetched again
+        userIds.forEach(userId -> providedImages.put(userId,
+                images == null ? null : images.get(userId)));
+    }
+
+    private void updateResourceRegistrations(VaadinSession session,
+            List<AvatarGroupItem> snapshot) {
+        if (session == null) {
+            // The resources cannot be served without a session
+            return;
+        }
+        Set<AbstractStreamResource> resources = Collections
+                .newSetFromMap(new IdentityHashMap<>());
+        for (AvatarGroupItem item : snapshot) {
+            if (item.getImageResource() != null) {
+                resources.add(item.getImageResource());
+            }
+        }
+        providedImages.values().stream().filter(Objects::nonNull)
+                .forEach(resources::add);
+
+        resourceRegistrations.entrySet().removeIf(entry -> {
+            if (resources.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().unregister();
+            return true;
+        });
+        AvatarResourceHandler handler = null;
+        if (AvatarImageProxy.isEnabled() && snapshot.stream()
+                .anyMatch(item -> item.getImageResource() == null
+                        && item.getImage() != null)) {
+            // The proxy is served by the handler of the session
+            handler = AvatarResourceHandler.get(session);
+        }
+        for (AbstractStreamResource resource : resources) {
+            if (resource instanceof StreamResource) {
+                if (handler == null) {
+                    handler = AvatarResourceHandler.get(session);
+                }
+                handler.addImageResource(resource);
+            } else if (!resourceRegistrations.containsKey(resource)) {
+                resourceRegistrations.put(resource, session
+                        .getResourceRegistry().registerResource(resource));
+            }
         }
     }
 
-    private JsonArray createItemsJsonArray(Collection<AvatarGroupItem> items) {
+    private void unregisterResources() {
+        resourceRegistrations.values().forEach(StreamRegistration::unregister);
+        resourceRegistrations.clear();
+    }
+
+    private String getClientImage(AvatarGroupItem item) {
+        String image = item.getImage();
+        if (image != null || item.getUserId() == null) {
+            return item.getImageResource() == null
+                    ? AvatarImageProxy.getClientUrl(image) : image;
+        }
+        AbstractStreamResource resource = providedImages
+                .get(item.getUserId());
+        if (resource instanceof StreamResource) {
+            return AvatarResourceHandler.getImageResourceUrl(resource);
+        }
+        StreamRegistration registration = resource == null ? null
+                : resourceRegistrations.get(resource);
+        return registration == null ? null
+                : registration.getResourceUri().toASCIIString();
+    }
+
+    private String getClientPlaceholder(AvatarGroupItem item) {
+        AbstractStreamResource resource = item.getImageResource();
+        if (resource == null && item.getImage() == null
+                && item.getUserId() != null) {
+            resource = providedImages.get(item.getUserId());
+        }
+        return resource instanceof TranscodedResource
+                ? ((TranscodedResource) resource).getPlaceholder()
+                : null;
+    }
+
+    JsonArray createItemsJsonArray(Collection<AvatarGroupItem> items) {
         JsonArray jsonItems = Json.createArray();
         for (AvatarGroupItem item: items) {
             JsonObject jsonItem = Json.createObject();
@@ -526,12 +1175,18 @@ public class AvatarGroup extends Component
                 jsonItem.put("abbr", item.getAbbreviation());
             }
 
-            if (item.getImage() != null) {
-                jsonItem.put("img", item.getImage());
+            String image = getClientImage(item);
+            if (image != null) {
+                jsonItem.put("img", image);
+                String placeholder = getClientPlaceholder(item);
+                if (placeholder != null) {
+                    jsonItem.put("placeholder", placeholder);
+                }
             }
 
-            if (item.getColorIndex() != null) {
-                jsonItem.put("colorIndex", item.getColorIndex());
+            int colorIndex = item.colorIndex;
+            if (colorIndex != AvatarGroupItem.NO_COLOR_INDEX) {
+                jsonItem.put("colorIndex", colorIndex);
             }
 
             jsonItems.set(jsonItems.length(), jsonItem);
@@ -540,19 +1195,196 @@ public class AvatarGroup extends Component
         return jsonItems;
     }
 
+    /**
+     * Writes the items as JSON text in the same form as
+     * {@link #createItemsJsonArray(Collection)}.
+     */
+    String writeItemsJson(Collection<AvatarGroupItem> items) {
+        AvatarJsonWriter writer = AvatarJsonWriter.create().beginArray();
+        for (AvatarGroupItem item : items) {
+            writer.beginObject();
+            String name = item.getName();
+            if (name != null) {
+                writer.property("name", name);
+            }
+
+            String abbr = item.getAbbreviation();
+            if (abbr != null) {
+                writer.property("abbr", abbr);
+            }
+
+            String image = getClientImage(item);
+            if (image != null) {
+                writer.property("img", image);
+                String placeholder = getClientPlaceholder(item);
+                if (placeholder != null) {
+                    writer.property("placeholder", placeholder);
+                }
+            }
+
+            int colorIndex = item.colorIndex;
+            if (colorIndex != AvatarGroupItem.NO_COLOR_INDEX) {
+                writer.property("colorIndex", colorIndex);
+            }
+            writer.endObject();
+        }
+        return writer.endArray().finish();
+    }
+
+    /**
+     * Creates the compact form of the items, with a column for each item
+     * property. The directories shared by the image URLs are written once and
+     * referenced by index.
+     */
+    JsonObject createCompactItemsJson(List<AvatarGroupItem> items) {
+        int size = items.size();
+        String[] images = new String[size];
+        for (int i = 0; i < size; i++) {
+            images[i] = getClientImage(items.get(i));
+        }
+        String[] imagePrefixes = getSharedImagePrefixes(images);
+        Map<String, Integer> prefixIndexes = new LinkedHashMap<>();
+
+        JsonArray names = Json.createArray();
+        JsonArray abbreviations = Json.createArray();
+        JsonArray imageSuffixes = Json.createArray();
+        JsonArray imagePrefixIndexes = Json.createArray();
+        JsonArray colorIndexes = Json.createArray();
+        JsonArray placeholders = Json.createArray();
+        boolean hasNames = false;
+        boolean hasAbbreviations = false;
+        boolean hasImages = false;
+        boolean hasColorIndexes = false;
+        boolean hasPlaceholders = false;
+
+        for (int i = 0; i < size; i++) {
+            AvatarGroupItem item = items.get(i);
+            hasNames |= setOrNull(names, i, item.getName());
+            hasAbbreviations |= setOrNull(abbreviations, i,
+                    item.getAbbreviation());
+
+            String prefix = imagePrefixes[i];
+            if (prefix == null) {
+                hasImages |= setOrNull(imageSuffixes, i, images[i]);
+                imagePrefixIndexes.set(i, -1);
+            } else {
+                Integer prefixIndex = prefixIndexes.get(prefix);
+                if (prefixIndex == null) {
+                    prefixIndex = prefixIndexes.size();
+                    prefixIndexes.put(prefix, prefixIndex);
+                }
+                hasImages = true;
+                imageSuffixes.set(i, images[i].substring(prefix.length()));
+                imagePrefixIndexes.set(i, prefixIndex);
+            }
+            hasPlaceholders |= setOrNull(placeholders, i, images[i] == null
+                    ? null : getClientPlaceholder(item));
+
+            int colorIndex = item.colorIndex;
+            if (colorIndex == AvatarGroupItem.NO_COLOR_INDEX) {
+                colorIndexes.set(i, Json.createNull());
+            } else {
+                hasColorIndexes = true;
+                colorIndexes.set(i, colorIndex);
+            }
+        }
+
+        JsonObject json = Json.createObject();
+        json.put("size", size);
+        if (hasNames) {
+            json.put("name", names);
+        }
+        if (hasAbbreviations) {
+            json.put("abbr", abbreviations);
+        }
+        if (hasImages) {
+            json.put("img", imageSuffixes);
+        }
+        if (!prefixIndexes.isEmpty()) {
+            JsonArray prefixes = Json.createArray();
+            prefixIndexes.keySet().forEach(
+                    prefix -> prefixes.set(prefixes.length(), prefix));
+            json.put("prefixes", prefixes);
+            json.put("imgPrefix", imagePrefixIndexes);
+        }
+        if (hasColorIndexes) {
+            json.put("colorIndex", colorIndexes);
+        }
+        if (hasPlaceholders) {
+            json.put("placeholder", placeholders);
+        }
+        return json;
+    }
+
+    private static boolean setOrNull(JsonArray array, int index,
+            String value) {
+        if (value == null) {
+            array.set(index, Json.createNull());
+            return false;
+        }
+        array.set(index, value);
+        return true;
+    }
+
+    /**
+     * Gets the deepest directory of each image URL that is shared with
+     * another image URL, or {@code null} if the URL shares no directory that
+     * is worth referencing by index.
+     */
+    private static String[] getSharedImagePrefixes(String[] images) {
+        Map<String, Integer> directoryCounts = new HashMap<>();
+        for (String image : images) {
+            if (image == null) {
+                continue;
+            }
+            for (int i = image.indexOf('/'); i >= 0;
+                    i = image.indexOf('/', i + 1)) {
+                directoryCounts.merge(image.substring(0, i + 1), 1,
+                        Integer::sum);
+            }
+        }
+
+        String[] prefixes = new String[images.length];
+        for (int index = 0; index < images.length; index++) {
+            String image = images[index];
+            if (image == null) {
+                continue;
+            }
+            for (int i = image.lastIndexOf('/'); i >= MIN_IMAGE_PREFIX_LENGTH;
+                    i = image.lastIndexOf('/', i - 1)) {
+                String directory = image.substring(0, i + 1);
+                if (directoryCounts.get(directory) > 1) {
+                    prefixes[index] = directory;
+                    break;
+                }
+            }
+        }
+        return prefixes;
+    }
+
     /**
      * Adds the items to the list of displayed as avatars.
+     * <p>
+     * This method can be called from any thread.
      *
      * @param items
      *            the items to add
      */
     public void add(AvatarGroupItem... items) {
-        setItems(Stream.concat(this.items.stream(),
-                Arrays.stream(items)).collect(Collectors.toList()));
+        itemsLock.lock();
+        try {
+            replaceItems(Stream.concat(this.items.stream(),
+                    Arrays.stream(items)).collect(Collectors.toList()));
+        } finally {
+            itemsLock.unlock();
+        }
+        setClientItems();
     }
 
     /**
      * Removes the items from the list of displayed as avatars.
+     * <p>
+     * This method can be called from any thread.
      *
      * @param items
      *            the items to remove
@@ -560,19 +1392,28 @@ public class AvatarGroup extends Component
     public void remove(AvatarGroupItem... items) {
         List<AvatarGroupItem> itemsToRemove = Arrays.asList(items);
 
-        setItems(this.items.stream()
-                .filter(item -> !itemsToRemove.contains(item))
-                .collect(Collectors.toList()));
+        itemsLock.lock();
+        try {
+            replaceItems(this.items.stream()
+                    .filter(item -> !itemsToRemove.contains(item))
+                    .collect(Collectors.toList()));
+        } finally {
+            itemsLock.unlock();
+        }
+        setClientItems();
     }
 
     /**
      * Gets the items that were set for the avatar group in an unmodifiable
      * list.
+     * <p>
+     * The returned list is a snapshot that is not affected by later changes
+     * to the items of the avatar group.
      *
      * @return list of items
      */
     public List<AvatarGroupItem> getItems() {
-        return Collections.unmodifiableList(items);
+        return items;
     }
 
     /**
@@ -623,6 +1464,9 @@ public class AvatarGroup extends Component
      */
     public void setMaxItemsVisible(Integer max) {
         getElement().setProperty("maxItemsVisible", max);
+        if (lazyOverflow) {
+            setClientItems();
+        }
     }
 
     /**
@@ -641,6 +1485,219 @@ public class AvatarGroup extends Component
         return null;
     }
 
+    /**
+     * Sets the provider that fetches the images of the items by user id.
+     * <p>
+     * The images are fetched in one batch for all the items that have a user
+     * id but no image of their own, before the items are sent to the client.
+     * The fetched images are cached by user id for as long as an item with
+     * the user id remains in the avatar group, so each user is fetched only
+     * once.
+     *
+     * @see AvatarGroupItem#setUserId(String)
+     * @param imageProvider
+     *            the image provider, or {@code null} to not fetch images
+     */
+    public void setImageProvider(AvatarImageProvider imageProvider) {
+        this.imageProvider = imageProvider;
+        providedImages.clear();
+        setClientItems();
+    }
+
+    /**
+     * Gets the provider that fetches the images of the items by user id.
+     *
+     * @return the image provider, or {@code null} if not set
+     */
+    public AvatarImageProvider getImageProvider() {
+        return imageProvider;
+    }
+
+    /**
+     * Sets the minimum interval between two updates of the items sent to the
+     * client.
+     * <p>
+     * Changes to the items made within the interval after an update are
+     * merged and sent to the client once when the interval has elapsed. The
+     * delayed update is delivered without waiting for a client roundtrip only
+     * if server push is enabled for the UI. By default, the interval is
+     * {@code 0}, which means that every change is sent with the next response
+     * to the client.
+     *
+     * @param intervalInMillis
+     *            the minimum interval between client updates in milliseconds,
+     *            not negative
+     */
+    public void setClientUpdateInterval(int intervalInMillis) {
+        if (intervalInMillis < 0) {
+            throw new IllegalArgumentException(
+                    "The client update interval should not be negative");
+        }
+        clientUpdateInterval = intervalInMillis;
+    }
+
+    /**
+     * Gets the minimum interval between two updates of the items sent to the
+     * client.
+     *
+     * @return the minimum interval between client updates in milliseconds
+     * @see AvatarGroup#setClientUpdateInterval(int)
+     */
+    public int getClientUpdateInterval() {
+        return clientUpdateInterval;
+    }
+
+    /**
+     * Sets whether the items are sent to the client in a compact form.
+     * <p>
+     * In the compact form, the items are sent as one array per item property
+     * instead of one object per item, and the directories shared by the image
+     * URLs, such as a CDN path or the path of the dynamic resources, are sent
+     * only once. The items are expanded on the client side. This reduces the
+     * size of the update for large avatar groups. By default, the items are
+     * sent as objects.
+     *
+     * @param compactItemsPayload
+     *            {@code true} to send the items in the compact form,
+     *            {@code false} to send them as objects
+     */
+    public void setCompactItemsPayload(boolean compactItemsPayload) {
+        if (this.compactItemsPayload == compactItemsPayload) {
+            return;
+        }
+        this.compactItemsPayload = compactItemsPayload;
+        if (compactItemsPayload) {
+            getElement().removeProperty("items");
+        }
+        setClientItems();
+    }
+
+    /**
+     * Sets whether the items in the overflow of the avatar group are loaded
+     * from the server only when the overflow list is opened.
+     * <p>
+     * When enabled and the avatar group has more items than
+     * {@link #getMaxItemsVisible()}, only the visible items and the total
+     * number of items are sent to the client, so the size of the update does
+     * not depend on the number of items. The overflow items are fetched in
+     * pages when the user opens the overflow list. By default, all the items
+     * are sent to the client.
+     * <p>
+     * The lazy overflow takes precedence over the compact form and the
+     * progressive chunks when the number of items exceeds the maximum number
+     * of visible items.
+     *
+     * @see AvatarGroup#setMaxItemsVisible(Integer)
+     * @param lazyOverflow
+     *            {@code true} to load the overflow items on demand,
+     *            {@code false} to send all the items to the client
+     */
+    public void setLazyOverflow(boolean lazyOverflow) {
+        if (this.lazyOverflow == lazyOverflow) {
+            return;
+        }
+        this.lazyOverflow = lazyOverflow;
+        setClientItems();
+    }
+
+    /**
+     * Gets whether the items in the overflow of the avatar group are loaded
+     * from the server only when the overflow list is opened.
+     *
+     * @return {@code true} if the overflow items are loaded on demand,
+     *         {@code false} if all the items are sent to the client
+     * @see AvatarGroup#setLazyOverflow(boolean)
+     */
+    public boolean isLazyOverflow() {
+        return lazyOverflow;
+    }
+
+    /**
+     * Sets the number of items to send to the client at a time.
+     * <p>
+     * When the avatar group has more items than the chunk size, only the
+     * first chunk of items, including at least the visible avatars, is sent
+     * with the next response together with the total number of items. This
+     * way the visible avatars and the overflow count are displayed without
+     * waiting for all the items. The remaining items are sent one chunk at a
+     * time, each one after the client has processed the previous one. By
+     * default, the chunk size is {@code 0}, which means that all the items
+     * are sent at once.
+     * <p>
+     * The chunk size has no effect when the items are sent in the compact
+     * form.
+     *
+     * @see AvatarGroup#setMaxItemsVisible(Integer)
+     * @see AvatarGroup#setCompactItemsPayload(boolean)
+     * @param chunkSize
+     *            the number of items to send at a time, or {@code 0} to send
+     *            all the items at once
+     */
+    public void setProgressiveChunkSize(int chunkSize) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException(
+                    "The chunk size should not be negative");
+        }
+        progressiveChunkSize = chunkSize;
+    }
+
+    /**
+     * Gets the number of items to send to the client at a time.
+     *
+     * @return the number of items to send at a time, or {@code 0} if all the
+     *         items are sent at once
+     * @see AvatarGroup#setProgressiveChunkSize(int)
+     */
+    public int getProgressiveChunkSize() {
+        return progressiveChunkSize;
+    }
+
+    /**
+     * Gets whether the items are sent to the client in a compact form.
+     *
+     * @return {@code true} if the items are sent in the compact form,
+     *         {@code false} if they are sent as objects
+     * @see AvatarGroup#setCompactItemsPayload(boolean)
+     */
+    public boolean isCompactItemsPayload() {
+        return compactItemsPayload;
+    }
+
+    /**
+     * Sets whether large item lists are sent to the client as JSON text.
+     * <p>
+     * When enabled, item lists of 5000 items or more are written directly as
+     * JSON text and parsed on the client side, instead of building a JSON
+     * tree of the items on the server. This reduces the memory retained on
+     * the server while the response is written, but the text is escaped in
+     * the response, which makes the update about a tenth larger. Like in the
+     * compact form, the items are not kept in the state of the element, they
+     * are sent again when the avatar group is attached. By default, the items
+     * are sent as objects.
+     *
+     * @param jsonTextItemsPayload
+     *            {@code true} to send large item lists as JSON text,
+     *            {@code false} to send them as objects
+     */
+    public void setJsonTextItemsPayload(boolean jsonTextItemsPayload) {
+        if (this.jsonTextItemsPayload == jsonTextItemsPayload) {
+            return;
+        }
+        this.jsonTextItemsPayload = jsonTextItemsPayload;
+        setClientItems();
+    }
+
+    /**
+     * Gets whether large item lists are sent to the client as JSON text.
+     *
+     * @return {@code true} if large item lists are sent as JSON text,
+     *         {@code false} if they are sent as objects
+     * @see AvatarGroup#setJsonTextItemsPayload(boolean)
+     */
+    public boolean isJsonTextItemsPayload() {
+        return jsonTextItemsPayload;
+    }
+
     /**
      * Adds theme variants to the avatar group component.
      *
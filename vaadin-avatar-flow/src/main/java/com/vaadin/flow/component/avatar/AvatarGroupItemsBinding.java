@@ -0,0 +1,209 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.shared.Registration;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Binds the items of an {@link AvatarGroup} to a Reactive Streams
+ * {@link Publisher} of item lists.
+ * <p>
+ * The publisher is subscribed to when the avatar group is attached and the
+ * subscription is cancelled when the avatar group is detached. Only one item
+ * list is requested at a time: the next one is requested once the client has
+ * received the previous one, which is one round trip to the client per item
+ * list. A synchronous publisher is thus not drained into a single response,
+ * and a slow client is not sent item lists faster than it processes them.
+ * No item list is requested while the avatar group is invisible or its
+ * updates are delayed by {@link AvatarGroup#setClientUpdateInterval(int)}.
+ * <p>
+ * The binding only keeps the latest item list, item lists that are emitted
+ * before the avatar group has sent the previous one replace it.
+ * <p>
+ * A {@code java.util.concurrent.Flow.Publisher} can be bound by adapting it
+ * with {@code org.reactivestreams.FlowAdapters#toPublisher}.
+ * <p>
+ * The publisher is not serialized with the session, the binding stops when
+ * the session is deserialized.
+ *
+ * @author Vaadin Ltd
+ */
+public class AvatarGroupItemsBinding implements Registration {
+
+    private final AvatarGroup avatarGroup;
+    private transient Publisher<? extends Collection<AvatarGroupItem>>
+            publisher;
+
+    private final Registration attachRegistration;
+    private final Registration detachRegistration;
+    private final Registration itemsSentRegistration;
+    private transient volatile ItemsSubscriber subscriber;
+
+    private AvatarGroupItemsBinding(AvatarGroup avatarGroup,
+            Publisher<? extends Collection<AvatarGroupItem>> publisher) {
+        this.avatarGroup = avatarGroup;
+        this.publisher = publisher;
+
+        attachRegistration = avatarGroup
+                .addAttachListener(event -> subscribe());
+        detachRegistration = avatarGroup
+                .addDetachListener(event -> cancelSubscription());
+        itemsSentRegistration = avatarGroup
+                .addItemsSentListener(this::onItemsSent);
+        if (avatarGroup.getUI().isPresent()) {
+            subscribe();
+        }
+    }
+
+    /**
+     * Binds the items of the avatar group to the item lists emitted by the
+     * publisher.
+     * <p>
+     * The publisher is subscribed to every time the avatar group is attached,
+     * so it should support multiple subsequent subscribers.
+     *
+     * @param avatarGroup
+     *            the avatar group to bind, not {@code null}
+     * @param publisher
+     *            the publisher of the item lists to display, not {@code null}
+     * @return the binding, which can be used to remove the binding
+     */
+    public static AvatarGroupItemsBinding bind(AvatarGroup avatarGroup,
+            Publisher<? extends Collection<AvatarGroupItem>> publisher) {
+        Objects.requireNonNull(avatarGroup,
+                "The avatar group should not be null");
+        Objects.requireNonNull(publisher, "The publisher should not be null");
+        return new AvatarGroupItemsBinding(avatarGroup, publisher);
+    }
+
+    /**
+     * Removes the binding and cancels the active subscription to the
+     * publisher. The items of the avatar group are left as they are.
+     */
+    @Override
+    public void remove() {
+        attachRegistration.remove();
+        detachRegistration.remove();
+        itemsSentRegistration.remove();
+        cancelSubscription();
+        publisher = null;
+    }
+
+    private void subscribe() {
+        cancelSubscription();
+        if (publisher == null) {
+            return;
+        }
+        ItemsSubscriber newSubscriber = new ItemsSubscriber();
+        subscriber = newSubscriber;
+        publisher.subscribe(newSubscriber);
+    }
+
+    private void cancelSubscription() {
+        ItemsSubscriber currentSubscriber = subscriber;
+        subscriber = null;
+        if (currentSubscriber != null) {
+            currentSubscriber.cancel();
+        }
+    }
+
+    private void onItemsSent() {
+        ItemsSubscriber currentSubscriber = subscriber;
+        if (currentSubscriber != null) {
+            currentSubscriber.itemsSent();
+        }
+    }
+
+    private class ItemsSubscriber
+            implements Subscriber<Collection<AvatarGroupItem>>, Serializable {
+        private transient volatile Subscription subscription;
+        private volatile boolean cancelled;
+        private volatile boolean awaitingSend;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (cancelled || this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Collection<AvatarGroupItem> items) {
+            if (cancelled) {
+                return;
+            }
+            // Set before the items so that the update cannot be missed
+            awaitingSend = true;
+            avatarGroup.setItems(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LoggerFactory.getLogger(AvatarGroupItemsBinding.class)
+                    .error("The avatar group items publisher failed",
+                            throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscription = null;
+        }
+
+        /**
+         * Requests the next item list once the client has received the last
+         * one. The items are sent while the response is written, which is
+         * delayed while the avatar group is invisible or its updates are
+         * throttled, and the client acknowledges them in its next request.
+         */
+        private void itemsSent() {
+            if (!awaitingSend) {
+                return;
+            }
+            awaitingSend = false;
+            avatarGroup.getElement().executeJs("return null").then(
+                    result -> requestNext(), error -> requestNext());
+        }
+
+        private void requestNext() {
+            Subscription currentSubscription = subscription;
+            if (!cancelled && currentSubscription != null) {
+                currentSubscription.request(1);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Subscription currentSubscription = subscription;
+            subscription = null;
+            if (currentSubscription != null) {
+                currentSubscription.cancel();
+            }
+        }
+    }
+}
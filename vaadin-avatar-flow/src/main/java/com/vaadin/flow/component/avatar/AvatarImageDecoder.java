@@ -0,0 +1,197 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.StreamResource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Prepares uploaded images for avatars by decoding them at about the size
+ * they are displayed at.
+ * <p>
+ * Only the header of an image is read first. Images with more pixels than
+ * {@link #getMaximumPixels()} are rejected before they are decoded, and other
+ * images are decoded with source subsampling, so that a large upload is never
+ * decoded at its full size. The decoded image is cropped to a square, scaled
+ * to the requested size and encoded as PNG.
+ * <p>
+ * The prepared image can be set to an avatar with
+ * {@link Avatar#setImageResource(com.vaadin.flow.server.AbstractStreamResource)}
+ * or loaded in the background with
+ * {@link Avatar#setImageAsync(String,
+ * com.vaadin.flow.function.SerializableSupplier)}.
+ *
+ * @author Vaadin Ltd
+ */
+public final class AvatarImageDecoder {
+
+    private static final long DEFAULT_MAXIMUM_PIXELS = 64L * 1024 * 1024;
+
+    private static volatile long maximumPixels = DEFAULT_MAXIMUM_PIXELS;
+
+    private AvatarImageDecoder() {
+    }
+
+    /**
+     * Sets the maximum number of pixels of the images to decode. Larger
+     * images are rejected based on the size in their header. The default is
+     * 64 megapixels.
+     *
+     * @param maximumPixels
+     *            the maximum number of pixels, greater than zero
+     */
+    public static void setMaximumPixels(long maximumPixels) {
+        if (maximumPixels <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of pixels should be greater than zero");
+        }
+        AvatarImageDecoder.maximumPixels = maximumPixels;
+    }
+
+    /**
+     * Gets the maximum number of pixels of the images to decode.
+     *
+     * @return the maximum number of pixels
+     */
+    public static long getMaximumPixels() {
+        return maximumPixels;
+    }
+
+    /**
+     * Decodes the given image and scales it to a square PNG image of the given
+     * size. Images smaller than the size are cropped but not enlarged.
+     *
+     * @param input
+     *            the image content in any format supported by
+     *            {@link ImageIO}, not {@code null}
+     * @param size
+     *            the width and height of the prepared image in pixels,
+     *            greater than zero
+     * @return the PNG content of the prepared image
+     * @throws IOException
+     *             if the image cannot be read, its format is not supported
+     *             or it has more than {@link #getMaximumPixels()} pixels
+     */
+    public static byte[] decode(InputStream input, int size)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(decodeImage(input, size), "png", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes the given image and scales it to a square image of the given
+     * size, without encoding it.
+     */
+    static BufferedImage decodeImage(InputStream input, int size)
+            throws IOException {
+        Objects.requireNonNull(input, "The input should not be null");
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    "The size should be greater than zero");
+        }
+        BufferedImage image;
+        try (ImageInputStream stream = ImageIO
+                .createImageInputStream(input)) {
+            image = readSubsampled(stream, size);
+        }
+
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int targetSize = Math.min(size, side);
+        BufferedImage target = new BufferedImage(targetSize, targetSize,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            int x = (image.getWidth() - side) / 2;
+            int y = (image.getHeight() - side) / 2;
+            graphics.drawImage(image, 0, 0, targetSize, targetSize, x, y,
+                    x + side, y + side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Decodes the given image and creates a resource of a square PNG image of
+     * the given size.
+     *
+     * @see #decode(InputStream, int)
+     * @param name
+     *            the name of the resource, not {@code null}
+     * @param input
+     *            the image content in any format supported by
+     *            {@link ImageIO}, not {@code null}
+     * @param size
+     *            the width and height of the prepared image in pixels,
+     *            greater than zero
+     * @return the resource of the prepared image
+     * @throws IOException
+     *             if the image cannot be read, its format is not supported
+     *             or it has more than {@link #getMaximumPixels()} pixels
+     */
+    public static StreamResource createResource(String name,
+            InputStream input, int size) throws IOException {
+        Objects.requireNonNull(name, "The name should not be null");
+        byte[] image = decode(input, size);
+        return new StreamResource(name, () -> new ByteArrayInputStream(image));
+    }
+
+    private static BufferedImage readSubsampled(ImageInputStream stream,
+            int size) throws IOException {
+        Iterator<ImageReader> readers = stream == null ? null
+                : ImageIO.getImageReaders(stream);
+        if (readers == null || !readers.hasNext()) {
+            throw new IOException("Unsupported image format");
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if (width <= 0 || height <= 0
+                    || (long) width * height > maximumPixels) {
+                throw new IOException("The image size " + width + "x"
+                        + height + " exceeds the maximum of " + maximumPixels
+                        + " pixels");
+            }
+
+            // Keep the shorter side at least as large as the target size
+            int subsampling = Math.max(1, Math.min(width, height) / size);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+}
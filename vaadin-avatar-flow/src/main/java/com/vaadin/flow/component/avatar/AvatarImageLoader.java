@@ -0,0 +1,240 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.function.SerializableSupplier;
+import com.vaadin.flow.server.Command;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads avatar images in the background for
+ * {@link Avatar#setImageAsync(String, SerializableSupplier)} and
+ * {@link AvatarGroup.AvatarGroupItem#setImageAsync(String,
+ * SerializableSupplier)}.
+ * <p>
+ * The image loaders are run by an executor, at most
+ * {@link #getMaxConcurrentLoads()} at a time. By default, a shared pool of
+ * daemon threads is used. Any executor can be configured instead, for example
+ * a virtual thread per task executor on a runtime that supports them.
+ * <p>
+ * The images loaded for the avatars of a UI are applied in a single
+ * {@link UI#access(Command)}, so images that finish loading at about the same
+ * time are sent to the client in one push.
+ *
+ * @author Vaadin Ltd
+ */
+public final class AvatarImageLoader {
+
+    private static final int DEFAULT_MAX_CONCURRENT_LOADS = 8;
+
+    private static final ThreadPoolExecutor DEFAULT_EXECUTOR =
+            createDefaultExecutor();
+
+    private static volatile Executor executor = DEFAULT_EXECUTOR;
+    private static volatile Semaphore permits = new Semaphore(
+            DEFAULT_MAX_CONCURRENT_LOADS);
+    private static volatile int maxConcurrentLoads =
+            DEFAULT_MAX_CONCURRENT_LOADS;
+
+    private AvatarImageLoader() {
+    }
+
+    /**
+     * Sets the executor that runs the image loaders.
+     *
+     * @param executor
+     *            the executor to use, or {@code null} to use the default pool
+     *            of daemon threads
+     */
+    public static void setExecutor(Executor executor) {
+        AvatarImageLoader.executor = executor == null ? DEFAULT_EXECUTOR
+                : executor;
+    }
+
+    /**
+     * Gets the executor that runs the image loaders.
+     *
+     * @return the executor, not {@code null}
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the maximum number of image loaders that are run concurrently.
+     * The default is {@code 8}.
+     *
+     * @param maxConcurrentLoads
+     *            the maximum number of concurrent loads, greater than zero
+     */
+    public static void setMaxConcurrentLoads(int maxConcurrentLoads) {
+        if (maxConcurrentLoads < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of concurrent loads should be "
+                            + "greater than zero");
+        }
+        synchronized (DEFAULT_EXECUTOR) {
+            if (maxConcurrentLoads > DEFAULT_EXECUTOR.getMaximumPoolSize()) {
+                DEFAULT_EXECUTOR.setMaximumPoolSize(maxConcurrentLoads);
+                DEFAULT_EXECUTOR.setCorePoolSize(maxConcurrentLoads);
+            } else {
+                DEFAULT_EXECUTOR.setCorePoolSize(maxConcurrentLoads);
+                DEFAULT_EXECUTOR.setMaximumPoolSize(maxConcurrentLoads);
+            }
+            AvatarImageLoader.maxConcurrentLoads = maxConcurrentLoads;
+            permits = new Semaphore(maxConcurrentLoads);
+        }
+    }
+
+    /**
+     * Gets the maximum number of image loaders that are run concurrently.
+     *
+     * @return the maximum number of concurrent loads
+     */
+    public static int getMaxConcurrentLoads() {
+        return maxConcurrentLoads;
+    }
+
+    /**
+     * Runs the loader in the background and passes the loaded image to the
+     * callback in the loading thread. Nothing is passed to the callback if the
+     * loader fails or returns {@code null}.
+     */
+    static void load(SerializableSupplier<byte[]> loader,
+            SerializableConsumer<byte[]> callback) {
+        Semaphore loadPermits = permits;
+        executor.execute(() -> {
+            byte[] image;
+            try {
+                loadPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                image = loader.get();
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger(AvatarImageLoader.class)
+                        .warn("Failed to load the avatar image", e);
+                return;
+            } finally {
+                loadPermits.release();
+            }
+            if (image != null) {
+                callback.accept(image);
+            }
+        });
+    }
+
+    /**
+     * Runs the loader in the background and passes the loaded image to the
+     * callback while holding the session lock of the UI. Callbacks of images
+     * loaded at about the same time are run in the same access. The session
+     * of the UI should be locked.
+     */
+    static void load(UI ui, SerializableSupplier<byte[]> loader,
+            SerializableConsumer<byte[]> callback) {
+        PendingUpdates pendingUpdates = PendingUpdates.get(ui);
+        load(loader, image -> pendingUpdates
+                .add(() -> callback.accept(image)));
+    }
+
+    /**
+     * The callbacks waiting for an access of a UI. Stored in the UI, so they
+     * are released with it, and cleared when the UI is detached.
+     */
+    private static final class PendingUpdates implements Serializable {
+        private final UI ui;
+        private transient Queue<Command> commands;
+
+        private PendingUpdates(UI ui) {
+            this.ui = ui;
+        }
+
+        private static PendingUpdates get(UI ui) {
+            PendingUpdates pendingUpdates = ComponentUtil.getData(ui,
+                    PendingUpdates.class);
+            if (pendingUpdates == null) {
+                PendingUpdates newPendingUpdates = new PendingUpdates(ui);
+                ComponentUtil.setData(ui, PendingUpdates.class,
+                        newPendingUpdates);
+                ui.addDetachListener(event -> newPendingUpdates.clear());
+                pendingUpdates = newPendingUpdates;
+            }
+            return pendingUpdates;
+        }
+
+        private void add(Command command) {
+            synchronized (this) {
+                if (commands == null) {
+                    commands = new ArrayDeque<>();
+                }
+                commands.add(command);
+                if (commands.size() > 1) {
+                    // Run by the access of the first one
+                    return;
+                }
+            }
+            try {
+                ui.access(this::run);
+            } catch (UIDetachedException e) {
+                clear();
+            }
+        }
+
+        private void run() {
+            Queue<Command> queue;
+            synchronized (this) {
+                queue = commands;
+                commands = null;
+            }
+            if (queue != null) {
+                queue.forEach(Command::execute);
+            }
+        }
+
+        private synchronized void clear() {
+            commands = null;
+        }
+    }
+
+    private static ThreadPoolExecutor createDefaultExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                DEFAULT_MAX_CONCURRENT_LOADS, DEFAULT_MAX_CONCURRENT_LOADS, 1,
+                TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "vaadin-avatar-image-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
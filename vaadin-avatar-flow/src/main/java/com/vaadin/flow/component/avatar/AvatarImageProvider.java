@@ -0,0 +1,54 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.AbstractStreamResource;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides the images for the items of an {@link AvatarGroup} by user id in
+ * batches.
+ * <p>
+ * The provider is called by the avatar group at most once per update sent to
+ * the client, with the distinct user ids of all the items that have a user id
+ * but no image of their own and that have not been fetched before.
+ * <p>
+ * When used with {@link AvatarRenderer}, the provider is called with one user
+ * id when the browser requests the image of the user, from the request thread
+ * without the session locked.
+ *
+ * @see AvatarGroup#setImageProvider(AvatarImageProvider)
+ * @see AvatarGroup.AvatarGroupItem#setUserId(String)
+ * @author Vaadin Ltd
+ */
+@FunctionalInterface
+public interface AvatarImageProvider extends Serializable {
+
+    /**
+     * Fetches the images of the given users.
+     *
+     * @param userIds
+     *            the distinct ids of the users to fetch the images for, not
+     *            {@code null} or empty
+     * @return the image resources by user id, users without an image can be
+     *         left out
+     */
+    Map<String, AbstractStreamResource> fetchImages(Set<String> userIds);
+}
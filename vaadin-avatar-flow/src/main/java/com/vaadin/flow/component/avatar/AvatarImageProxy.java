@@ -0,0 +1,429 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder.TranscodedResource;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the external avatar image URLs through the server, so that the
+ * clients do not fetch the images from the external origin.
+ * <p>
+ * The proxy is disabled by default. When it is enabled, the absolute
+ * {@code http} and {@code https} image URLs set with
+ * {@link Avatar#setImage(String)} and
+ * {@link AvatarGroup.AvatarGroupItem#setImage(String)} are sent to the client
+ * as local URLs. The image of a URL is fetched by the server when it is first
+ * requested, transcoded to {@link #getImageSize()} with
+ * {@link AvatarImageTranscoder}, and cached, so the external origin is
+ * requested once per image for as long as it is cached. Responses that are
+ * not images, or are larger than {@link #getMaximumContentLength()}, are
+ * rejected.
+ * <p>
+ * Only the URLs that have been set by the application are served, the proxy
+ * does not fetch URLs requested by the clients. The external URL is part of
+ * the local URL, which is signed with a key of the server, so the proxy does
+ * not keep the URLs that have been sent to the clients. The proxy does not
+ * follow redirects.
+ * <p>
+ * By default, the key is created randomly when the proxy is first used, so
+ * the local URLs are only valid in the same JVM. When the sessions are
+ * replicated or persisted, the same key should be set with
+ * {@link #setSigningKey(byte[])} on every server, so that the URLs on the
+ * clients stay valid after a failover or a restart.
+ *
+ * @author Vaadin Ltd
+ */
+public final class AvatarImageProxy {
+
+    private static final String PROXY_URL_PREFIX =
+            "VAADIN/dynamic/avatar/proxy/";
+
+    private static final int DEFAULT_IMAGE_SIZE = 128;
+    private static final int DEFAULT_MAXIMUM_CACHE_SIZE = 1024;
+    private static final int DEFAULT_MAXIMUM_CONTENT_LENGTH = 5 * 1024 * 1024;
+    private static final int DEFAULT_TIMEOUT = 10_000;
+    private static final long CACHE_TIME = TimeUnit.DAYS.toMillis(1);
+
+    private static volatile boolean enabled;
+    private static volatile int imageSize = DEFAULT_IMAGE_SIZE;
+    private static volatile int maximumCacheSize = DEFAULT_MAXIMUM_CACHE_SIZE;
+    private static volatile int maximumContentLength =
+            DEFAULT_MAXIMUM_CONTENT_LENGTH;
+    private static volatile int timeout = DEFAULT_TIMEOUT;
+
+    private static final int MIN_SIGNING_KEY_LENGTH = 16;
+
+    // Signs the local URLs, only the URLs set by the application are fetched
+    private static volatile byte[] signingKey = AvatarResourceHandler
+            .createSigningKey();
+
+    // The requests for the same image wait for the same fetch
+    private static final Map<String, CompletableFuture<TranscodedResource>>
+            cache = new LinkedHashMap<String,
+                    CompletableFuture<TranscodedResource>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String,
+                        CompletableFuture<TranscodedResource>> eldest) {
+                    return size() > maximumCacheSize;
+                }
+            };
+
+    private AvatarImageProxy() {
+    }
+
+    /**
+     * Sets whether the external image URLs are served through the proxy. The
+     * URLs that have already been sent to the client are not affected. The
+     * default is {@code false}.
+     *
+     * @param enabled
+     *            {@code true} to serve the external image URLs through the
+     *            proxy
+     */
+    public static void setEnabled(boolean enabled) {
+        AvatarImageProxy.enabled = enabled;
+    }
+
+    /**
+     * Gets whether the external image URLs are served through the proxy.
+     *
+     * @return {@code true} if the proxy is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the width and height in pixels of the images served by the proxy.
+     * The default is 128.
+     *
+     * @param imageSize
+     *            the size of the images, greater than zero
+     */
+    public static void setImageSize(int imageSize) {
+        if (imageSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The image size should be greater than zero");
+        }
+        AvatarImageProxy.imageSize = imageSize;
+    }
+
+    /**
+     * Gets the width and height in pixels of the images served by the proxy.
+     *
+     * @return the size of the images
+     */
+    public static int getImageSize() {
+        return imageSize;
+    }
+
+    /**
+     * Sets the maximum number of bytes fetched for an image. The default is
+     * 5 MB.
+     *
+     * @param maximumContentLength
+     *            the maximum number of bytes, greater than zero
+     */
+    public static void setMaximumContentLength(int maximumContentLength) {
+        if (maximumContentLength <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum content length should be greater than zero");
+        }
+        AvatarImageProxy.maximumContentLength = maximumContentLength;
+    }
+
+    /**
+     * Gets the maximum number of bytes fetched for an image.
+     *
+     * @return the maximum number of bytes
+     */
+    public static int getMaximumContentLength() {
+        return maximumContentLength;
+    }
+
+    /**
+     * Sets the connect and read timeout of fetching an image, in
+     * milliseconds. The default is 10 seconds.
+     *
+     * @param timeout
+     *            the timeout in milliseconds, greater than zero
+     */
+    public static void setTimeout(int timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException(
+                    "The timeout should be greater than zero");
+        }
+        AvatarImageProxy.timeout = timeout;
+    }
+
+    /**
+     * Gets the connect and read timeout of fetching an image, in
+     * milliseconds.
+     *
+     * @return the timeout in milliseconds
+     */
+    public static int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the secret key that signs the local URLs of the proxy. The URLs
+     * that have been signed with another key are not served anymore. The
+     * default is a random key created for each JVM.
+     *
+     * @param signingKey
+     *            the key, at least 16 bytes, not {@code null}
+     */
+    public static void setSigningKey(byte[] signingKey) {
+        Objects.requireNonNull(signingKey,
+                "The signing key should not be null");
+        if (signingKey.length < MIN_SIGNING_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "The signing key should have at least "
+                            + MIN_SIGNING_KEY_LENGTH + " bytes");
+        }
+        AvatarImageProxy.signingKey = signingKey.clone();
+    }
+
+    /**
+     * Sets the maximum number of images to cache. The least recently used
+     * images are removed from the cache when it is full, and fetched again
+     * when they are requested. The default is 1024.
+     *
+     * @param maximumCacheSize
+     *            the maximum number of cached images, not negative
+     */
+    public static void setMaximumCacheSize(int maximumCacheSize) {
+        if (maximumCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum cache size should not be negative");
+        }
+        synchronized (cache) {
+            AvatarImageProxy.maximumCacheSize = maximumCacheSize;
+            while (cache.size() > maximumCacheSize) {
+                cache.remove(cache.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Gets the maximum number of images to cache.
+     *
+     * @return the maximum number of cached images
+     */
+    public static int getMaximumCacheSize() {
+        return maximumCacheSize;
+    }
+
+    /**
+     * Removes all the images from the cache, they are fetched again when
+     * they are requested.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets the image of the given external URL as served by the proxy,
+     * fetching it if it is not in the cache. This can be used, for example,
+     * to fetch the images before they are requested by the clients.
+     *
+     * @param url
+     *            the absolute {@code http} or {@code https} URL of the image,
+     *            not {@code null}
+     * @return the resource of the transcoded image, the same resource for
+     *         the same URL while the image is cached
+     * @throws IOException
+     *             if the image cannot be fetched, is not an image or is too
+     *             large
+     */
+    public static TranscodedResource getImage(String url) throws IOException {
+        Objects.requireNonNull(url, "The url should not be null");
+        if (!isExternal(url)) {
+            throw new IllegalArgumentException(
+                    "The url should be an absolute http or https URL");
+        }
+        String key = getKey(url);
+        CompletableFuture<TranscodedResource> image;
+        boolean fetch = false;
+        synchronized (cache) {
+            image = cache.get(key);
+            if (image == null) {
+                image = new CompletableFuture<>();
+                cache.put(key, image);
+                fetch = true;
+            }
+        }
+        if (fetch) {
+            try {
+                image.complete(fetch(url));
+            } catch (IOException | RuntimeException e) {
+                // Not cached, fetched again when requested again
+                synchronized (cache) {
+                    cache.remove(key, image);
+                }
+                image.completeExceptionally(e);
+            }
+        }
+        try {
+            return image.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Gets the URL to send to the client for the given image URL, the local
+     * URL of the proxy for an external URL if the proxy is enabled, and the
+     * given URL otherwise.
+     */
+    static String getClientUrl(String url) {
+        if (!enabled || url == null || !isExternal(url)) {
+            return url;
+        }
+        return PROXY_URL_PREFIX + AvatarResourceHandler.sign(signingKey,
+                Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(url.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Gets the image of a local URL created with {@link #getClientUrl(String)},
+     * by the path of the URL after the proxy prefix.
+     *
+     * @return the image, or {@code null} if the path has not been created by
+     *         the proxy or the image cannot be fetched
+     */
+    static TranscodedResource getImageByClientPath(String path) {
+        String encodedUrl = AvatarResourceHandler.verify(signingKey, path);
+        if (encodedUrl == null) {
+            return null;
+        }
+        String url;
+        try {
+            url = new String(Base64.getUrlDecoder().decode(encodedUrl),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        try {
+            return getImage(url);
+        } catch (IOException e) {
+            LoggerFactory.getLogger(AvatarImageProxy.class)
+                    .warn("Failed to fetch the avatar image " + url, e);
+            return null;
+        }
+    }
+
+    private static String getKey(String url) {
+        return AvatarImageTranscoder
+                .hash(url.getBytes(StandardCharsets.UTF_8)).substring(0, 32);
+    }
+
+    private static boolean isExternal(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme();
+            return uri.getHost() != null && scheme != null
+                    && ("http".equals(scheme.toLowerCase(Locale.ROOT))
+                            || "https".equals(scheme.toLowerCase(Locale.ROOT)));
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static TranscodedResource fetch(String url) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        if (connection instanceof HttpURLConnection) {
+            // A redirect could lead to any host, it is not followed
+            ((HttpURLConnection) connection).setInstanceFollowRedirects(false);
+        }
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setRequestProperty("Accept", "image/*");
+        try {
+            if (connection instanceof HttpURLConnection
+                    && ((HttpURLConnection) connection)
+                            .getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response status "
+                        + ((HttpURLConnection) connection).getResponseCode());
+            }
+            String contentType = connection.getContentType();
+            if (contentType == null || !contentType.toLowerCase(Locale.ROOT)
+                    .startsWith("image/")) {
+                throw new IOException(
+                        "Unexpected content type " + contentType);
+            }
+            int limit = maximumContentLength;
+            if (connection.getContentLengthLong() > limit) {
+                throw new IOException("The content length "
+                        + connection.getContentLengthLong()
+                        + " exceeds the maximum of " + limit + " bytes");
+            }
+            TranscodedResource resource = AvatarImageTranscoder
+                    .transcodeUncached(read(connection, limit), imageSize);
+            resource.setCacheTime(CACHE_TIME);
+            return resource;
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    private static byte[] read(URLConnection connection, int limit)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream input = connection.getInputStream()) {
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                if (output.size() + count > limit) {
+                    // The content length may be missing or wrong
+                    throw new IOException(
+                            "The content exceeds the maximum of " + limit
+                                    + " bytes");
+                }
+                output.write(buffer, 0, count);
+            }
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.StreamResource;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Re-encodes avatar images in the smallest format for the size they are
+ * displayed at, and caches the results by the content of the images.
+ * <p>
+ * The image is decoded with {@link AvatarImageDecoder}, so the same pixel
+ * limits apply. It is then encoded both as PNG and, if it has no
+ * transparency, as JPEG with a quality suitable for the size, and the smaller
+ * one is used. Metadata of the original image, such as EXIF data and
+ * embedded thumbnails, is not copied.
+ * <p>
+ * The transcoded images are cached by the SHA-256 hash of the original image
+ * and the size, so the same image uploaded for many users, or set to many
+ * avatars, is transcoded once and served through one resource, set to the
+ * avatars with
+ * {@link Avatar#setImageResource(com.vaadin.flow.server.AbstractStreamResource)}.
+ * <p>
+ * A 4&times;4 preview of the image is created and cached with it. Avatars and
+ * avatar group items display the preview as a placeholder until the
+ * transcoded image has been loaded.
+ *
+ * @author Vaadin Ltd
+ */
+public final class AvatarImageTranscoder {
+
+    private static final int DEFAULT_MAXIMUM_CACHE_SIZE = 1024;
+
+    // Scaled up by the browser, which blurs the preview
+    private static final int PLACEHOLDER_SIZE = 4;
+
+    // Artifacts are less visible in small avatars
+    private static final int SMALL_IMAGE_SIZE = 128;
+    private static final float SMALL_IMAGE_QUALITY = 0.75f;
+    private static final float LARGE_IMAGE_QUALITY = 0.85f;
+
+    private static volatile int maximumCacheSize = DEFAULT_MAXIMUM_CACHE_SIZE;
+
+    private static final Map<String, TranscodedResource> cache =
+            new LinkedHashMap<String, TranscodedResource>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, TranscodedResource> eldest) {
+                    return size() > maximumCacheSize;
+                }
+            };
+
+    private AvatarImageTranscoder() {
+    }
+
+    /**
+     * Sets the maximum number of transcoded images to cache. The least
+     * recently used images are removed from the cache when it is full. The
+     * default is 1024.
+     *
+     * @param maximumCacheSize
+     *            the maximum number of cached images, not negative
+     */
+    public static void setMaximumCacheSize(int maximumCacheSize) {
+        if (maximumCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum cache size should not be negative");
+        }
+        synchronized (cache) {
+            AvatarImageTranscoder.maximumCacheSize = maximumCacheSize;
+            trimCache();
+        }
+    }
+
+    /**
+     * Gets the maximum number of transcoded images to cache.
+     *
+     * @return the maximum number of cached images
+     */
+    public static int getMaximumCacheSize() {
+        return maximumCacheSize;
+    }
+
+    /**
+     * Removes all the transcoded images from the cache.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets a resource of the given image transcoded to a square image of the
+     * given size, transcoding the image if it is not in the cache.
+     *
+     * @param image
+     *            the image content in any format supported by
+     *            {@link ImageIO}, not {@code null}
+     * @param size
+     *            the width and height of the image in pixels, greater than
+     *            zero
+     * @return the resource of the transcoded image, the same resource for
+     *         the same image and size while the image is cached
+     * @throws IOException
+     *             if the image cannot be read, its format is not supported
+     *             or it has more pixels than allowed by
+     *             {@link AvatarImageDecoder#getMaximumPixels()}
+     */
+    public static TranscodedResource transcode(byte[] image, int size)
+            throws IOException {
+        Objects.requireNonNull(image, "The image should not be null");
+        String hash = hash(image);
+        String key = hash + '/' + size;
+        synchronized (cache) {
+            TranscodedResource resource = cache.get(key);
+            if (resource != null) {
+                return resource;
+            }
+        }
+
+        // Transcoded without holding the lock, an image requested
+        // concurrently may be transcoded twice
+        TranscodedResource resource = createResource(image, hash, size);
+        synchronized (cache) {
+            TranscodedResource cached = cache.putIfAbsent(key, resource);
+            return cached == null ? resource : cached;
+        }
+    }
+
+    /**
+     * Transcodes the given image without using the cache, for images that
+     * are stored elsewhere, such as the images of an {@link AvatarStore}.
+     */
+    static TranscodedResource transcodeUncached(byte[] image, int size)
+            throws IOException {
+        Objects.requireNonNull(image, "The image should not be null");
+        return createResource(image, hash(image), size);
+    }
+
+    private static TranscodedResource createResource(byte[] image,
+            String hash, int size) throws IOException {
+        BufferedImage decoded = AvatarImageDecoder
+                .decodeImage(new ByteArrayInputStream(image), size);
+        byte[] transcoded;
+        String extension = ".png";
+        if (isOpaque(decoded)) {
+            BufferedImage opaque = toOpaque(decoded);
+            transcoded = encodePng(opaque);
+            byte[] jpeg = encodeJpeg(opaque, size <= SMALL_IMAGE_SIZE
+                    ? SMALL_IMAGE_QUALITY : LARGE_IMAGE_QUALITY);
+            if (jpeg.length < transcoded.length) {
+                transcoded = jpeg;
+                extension = ".jpg";
+            }
+        } else {
+            transcoded = encodePng(decoded);
+        }
+        return new TranscodedResource(
+                "avatar-" + hash.substring(0, 16) + extension, transcoded,
+                createPlaceholder(decoded));
+    }
+
+    private static String createPlaceholder(BufferedImage image)
+            throws IOException {
+        BufferedImage placeholder = new BufferedImage(PLACEHOLDER_SIZE,
+                PLACEHOLDER_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = placeholder.createGraphics();
+        try {
+            graphics.drawImage(image.getScaledInstance(PLACEHOLDER_SIZE,
+                    PLACEHOLDER_SIZE, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return "data:image/png;base64," + Base64.getEncoder()
+                .encodeToString(encodePng(placeholder));
+    }
+
+    private static void trimCache() {
+        while (cache.size() > maximumCacheSize) {
+            cache.remove(cache.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Gets the SHA-256 hash of the given content as a hex string.
+     */
+    static String hash(byte[] image) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(image);
+            StringBuilder hash = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hash.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) >>> 24 != 0xff) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static BufferedImage toOpaque(BufferedImage image) {
+        BufferedImage opaque = new BufferedImage(image.getWidth(),
+                image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = opaque.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return opaque;
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality)
+            throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg")
+                .next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO
+                .createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * The resource of a transcoded avatar image, with a placeholder to
+     * display until the image has been loaded.
+     */
+    public static class TranscodedResource extends StreamResource {
+
+        private final String placeholder;
+
+        private TranscodedResource(String name, byte[] content,
+                String placeholder) {
+            super(name, () -> new ByteArrayInputStream(content));
+            this.placeholder = placeholder;
+        }
+
+        /**
+         * Gets the placeholder of the image, a tiny preview of the image as
+         * a data URL, small enough to be sent with the avatar properties.
+         *
+         * @return the data URL of the placeholder
+         */
+        public String getPlaceholder() {
+            return placeholder;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes JSON text directly to a buffer, without building a tree of JSON
+ * values first.
+ * <p>
+ * A buffer is pooled and reused by the following writers, so that writing a
+ * large payload does not grow a new buffer from scratch every time.
+ *
+ * @author Vaadin Ltd
+ */
+final class AvatarJsonWriter {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    // Larger buffers are left for the garbage collector, so the pool retains
+    // at most 2 MB, enough for about 10000 items
+    private static final int MAX_POOLED_CAPACITY = 1 << 20;
+    private static final BlockingQueue<StringBuilder> BUFFER_POOL =
+            new ArrayBlockingQueue<>(1);
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef"
+            .toCharArray();
+
+    private final StringBuilder buffer;
+    private boolean firstValue = true;
+
+    private AvatarJsonWriter(StringBuilder buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a writer with a pooled buffer. The buffer is returned to the
+     * pool by {@link #finish()}.
+     */
+    static AvatarJsonWriter create() {
+        StringBuilder buffer = BUFFER_POOL.poll();
+        return new AvatarJsonWriter(
+                buffer == null ? new StringBuilder(INITIAL_CAPACITY) : buffer);
+    }
+
+    AvatarJsonWriter beginArray() {
+        separateValue();
+        buffer.append('[');
+        firstValue = true;
+        return this;
+    }
+
+    AvatarJsonWriter endArray() {
+        buffer.append(']');
+        firstValue = false;
+        return this;
+    }
+
+    AvatarJsonWriter beginObject() {
+        separateValue();
+        buffer.append('{');
+        firstValue = true;
+        return this;
+    }
+
+    AvatarJsonWriter endObject() {
+        buffer.append('}');
+        firstValue = false;
+        return this;
+    }
+
+    AvatarJsonWriter property(String name, String value) {
+        separateValue();
+        writeString(name);
+        buffer.append(':');
+        writeString(value);
+        return this;
+    }
+
+    AvatarJsonWriter property(String name, int value) {
+        separateValue();
+        writeString(name);
+        buffer.append(':').append(value);
+        return this;
+    }
+
+    /**
+     * Gets the written JSON and returns the buffer to the pool. The writer
+     * should not be used after this.
+     */
+    String finish() {
+        String json = buffer.toString();
+        buffer.setLength(0);
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            BUFFER_POOL.offer(buffer);
+        }
+        return json;
+    }
+
+    private void separateValue() {
+        if (!firstValue) {
+            buffer.append(',');
+        }
+        firstValue = false;
+    }
+
+    private void writeString(String value) {
+        buffer.append('"');
+        int length = value.length();
+        int unescaped = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            // The line and paragraph separators are escaped for JavaScript
+            if (c >= ' ' && c != '"' && c != '\\' && c != '\u2028'
+                    && c != '\u2029') {
+                continue;
+            }
+            buffer.append(value, unescaped, i);
+            unescaped = i + 1;
+            switch (c) {
+            case '"':
+                buffer.append("\\\"");
+                break;
+            case '\\':
+                buffer.append("\\\\");
+                break;
+            case '\n':
+                buffer.append("\\n");
+                break;
+            case '\r':
+                buffer.append("\\r");
+                break;
+            case '\t':
+                buffer.append("\\t");
+                break;
+            default:
+                buffer.append("\\u").append(HEX_DIGITS[c >> 12])
+                        .append(HEX_DIGITS[(c >> 8) & 0xF])
+                        .append(HEX_DIGITS[(c >> 4) & 0xF])
+                        .append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        buffer.append(value, unescaped, length);
+        buffer.append('"');
+    }
+}
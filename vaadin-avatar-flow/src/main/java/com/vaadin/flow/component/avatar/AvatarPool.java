@@ -0,0 +1,107 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * Pool of detached avatars for reuse, for example in feeds that add and
+ * remove rows as the user scrolls.
+ * <p>
+ * Avatars that are no longer displayed are released to the pool, and
+ * {@link #obtain(String, String, String, Integer)} rebinds a pooled avatar to
+ * the properties of the new row instead of creating a new component. Only the
+ * properties of {@link Avatar#rebind(String, String, String, Integer)} are
+ * reset, so the avatars of a pool should share their other configuration,
+ * such as theme variants and styles.
+ * <p>
+ * A pool is not thread safe and should only be used with the avatars of one
+ * UI, while holding the session lock.
+ *
+ * @author Vaadin Ltd
+ */
+public class AvatarPool implements Serializable {
+
+    private final int maxSize;
+    private final ArrayDeque<Avatar> avatars = new ArrayDeque<>();
+
+    /**
+     * Creates a pool that keeps at most the given number of released
+     * avatars.
+     *
+     * @param maxSize
+     *            the maximum number of pooled avatars, not negative
+     */
+    public AvatarPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum size should not be negative");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets an avatar with the given properties, reusing a pooled avatar if
+     * there is one.
+     *
+     * @param name
+     *            the name for the avatar
+     * @param abbr
+     *            the abbreviation for the avatar
+     * @param url
+     *            the image url for the avatar
+     * @param colorIndex
+     *            the color index for the avatar
+     * @return a detached avatar with the given properties
+     * @see Avatar#rebind(String, String, String, Integer)
+     */
+    public Avatar obtain(String name, String abbr, String url,
+            Integer colorIndex) {
+        Avatar avatar = avatars.pollLast();
+        if (avatar == null) {
+            avatar = new Avatar();
+        }
+        return avatar.rebind(name, abbr, url, colorIndex);
+    }
+
+    /**
+     * Releases an avatar to the pool. The avatar is removed from its parent
+     * if it has one. The avatar is discarded if the pool is full, and releasing
+     * an avatar that is already in the pool has no effect.
+     *
+     * @param avatar
+     *            the avatar that is no longer used, not {@code null}
+     */
+    public void release(Avatar avatar) {
+        Objects.requireNonNull(avatar, "The avatar should not be null");
+        avatar.getElement().removeFromParent();
+        if (avatars.size() < maxSize && !avatars.contains(avatar)) {
+            avatars.addLast(avatar);
+        }
+    }
+
+    /**
+     * Gets the number of avatars in the pool.
+     *
+     * @return the number of pooled avatars
+     */
+    public int size() {
+        return avatars.size();
+    }
+}
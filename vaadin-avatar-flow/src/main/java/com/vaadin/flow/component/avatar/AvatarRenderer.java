@@ -0,0 +1,158 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.component.dependency.JsModule;
+import com.vaadin.flow.component.dependency.NpmPackage;
+import com.vaadin.flow.data.renderer.Renderer;
+import com.vaadin.flow.function.ValueProvider;
+import com.vaadin.flow.server.VaadinSession;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Renderer that displays a <code>vaadin-avatar</code> for each item of a
+ * list component, such as a grid, from the data of the item.
+ * <p>
+ * Unlike an {@link Avatar} per item, the renderer creates no server-side
+ * component for the items. Only the name, abbreviation, image URL and color
+ * index of the rendered items are sent to the client.
+ * <p>
+ * Images can be fetched by user id with an {@link AvatarImageProvider}. The
+ * images of all the rendered items are then served by one request handler of
+ * the session instead of registering a stream resource for each item.
+ * <p>
+ * The properties of the renderer should be configured before the renderer is
+ * set to a component.
+ *
+ * @param <SOURCE>
+ *            the type of the items to render
+ * @author Vaadin Ltd
+ */
+@JsModule("@vaadin/vaadin-avatar/src/vaadin-avatar.js")
+@NpmPackage(value = "@vaadin/vaadin-avatar", version = "1.0.0")
+public class AvatarRenderer<SOURCE> extends Renderer<SOURCE> {
+
+    private static final String TEMPLATE = "<vaadin-avatar"
+            + " name=\"[[item.avatarName]]\""
+            + " abbr=\"[[item.avatarAbbr]]\""
+            + " img=\"[[item.avatarImg]]\""
+            + " color-index=\"[[item.avatarColorIndex]]\">"
+            + "</vaadin-avatar>";
+
+    private final String imageProviderId = UUID.randomUUID().toString();
+
+    /**
+     * Creates a renderer that displays avatars with the names provided by
+     * the given value provider.
+     *
+     * @param nameProvider
+     *            the provider of the name of the avatar of an item, not
+     *            {@code null}
+     */
+    public AvatarRenderer(ValueProvider<SOURCE, String> nameProvider) {
+        super(TEMPLATE);
+        Objects.requireNonNull(nameProvider,
+                "The name provider should not be null");
+        setProperty("avatarName", nameProvider);
+    }
+
+    /**
+     * Sets the provider of the abbreviation of the avatar of an item.
+     *
+     * @param abbreviationProvider
+     *            the provider of the abbreviation, not {@code null}
+     * @return this renderer for method chaining
+     */
+    public AvatarRenderer<SOURCE> withAbbreviation(
+            ValueProvider<SOURCE, String> abbreviationProvider) {
+        Objects.requireNonNull(abbreviationProvider,
+                "The abbreviation provider should not be null");
+        setProperty("avatarAbbr", abbreviationProvider);
+        return this;
+    }
+
+    /**
+     * Sets the provider of the image URL of the avatar of an item.
+     * <p>
+     * This replaces the image provider set with
+     * {@link #withImageProvider(ValueProvider, AvatarImageProvider)}.
+     *
+     * @param imageUrlProvider
+     *            the provider of the image URL, not {@code null}
+     * @return this renderer for method chaining
+     */
+    public AvatarRenderer<SOURCE> withImage(
+            ValueProvider<SOURCE, String> imageUrlProvider) {
+        Objects.requireNonNull(imageUrlProvider,
+                "The image URL provider should not be null");
+        setProperty("avatarImg", imageUrlProvider);
+        return this;
+    }
+
+    /**
+     * Sets the image provider that fetches the image of the avatar of an item
+     * by the user id of the item.
+     * <p>
+     * The image of a user is fetched when the browser requests it, one user
+     * at a time and without the session locked. Only the users of the
+     * rendered items are fetched, the image URLs are signed so that the
+     * browser cannot request the images of other users. This replaces the
+     * image URL provider set with {@link #withImage(ValueProvider)}.
+     *
+     * @param userIdProvider
+     *            the provider of the user id of an item, not {@code null}
+     * @param imageProvider
+     *            the image provider, not {@code null}
+     * @return this renderer for method chaining
+     */
+    public AvatarRenderer<SOURCE> withImageProvider(
+            ValueProvider<SOURCE, String> userIdProvider,
+            AvatarImageProvider imageProvider) {
+        Objects.requireNonNull(userIdProvider,
+                "The user id provider should not be null");
+        Objects.requireNonNull(imageProvider,
+                "The image provider should not be null");
+        String providerId = imageProviderId;
+        setProperty("avatarImg", item -> {
+            String userId = userIdProvider.apply(item);
+            VaadinSession session = VaadinSession.getCurrent();
+            if (userId == null || session == null) {
+                return null;
+            }
+            return AvatarResourceHandler.get(session).getImageUrl(providerId,
+                    imageProvider, userId);
+        });
+        return this;
+    }
+
+    /**
+     * Sets the provider of the color index of the avatar of an item.
+     *
+     * @param colorIndexProvider
+     *            the provider of the color index, not {@code null}
+     * @return this renderer for method chaining
+     */
+    public AvatarRenderer<SOURCE> withColorIndex(
+            ValueProvider<SOURCE, Integer> colorIndexProvider) {
+        Objects.requireNonNull(colorIndexProvider,
+                "The color index provider should not be null");
+        setProperty("avatarColorIndex", colorIndexProvider);
+        return this;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.AbstractStreamResource;
+import com.vaadin.flow.server.RequestHandler;
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinSession;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the avatar images of a session through one request handler, so that
+ * no stream resource needs to be registered per displayed avatar.
+ * <p>
+ * The image URLs refer either to an image provider by id and to the user by
+ * the encoded user id, to an image resource by the id of the resource, or to
+ * an external image served by {@link AvatarImageProxy}. The handler only
+ * references the image providers and the image resources weakly, they are
+ * served for as long as they are in use by the application.
+ * <p>
+ * The URLs of the images of an image provider are signed with a key of the
+ * session, so that a client can only request the images of the users that
+ * have been rendered for it.
+ *
+ * @author Vaadin Ltd
+ */
+final class AvatarResourceHandler implements RequestHandler {
+
+    private static final String PATH_PREFIX = "VAADIN/dynamic/avatar/";
+    private static final String RESOURCE_PATH = "resource";
+    private static final String PROXY_PATH = "proxy";
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    // 128 bits of the signature are included in the URL
+    private static final int SIGNATURE_LENGTH = 16;
+
+    // Serialized, the URLs on the client stay valid
+    private final byte[] signingKey = createSigningKey();
+
+    // The providers are not serialized, they are registered again when the
+    // image URLs are created
+    private transient Map<String, WeakReference<AvatarImageProvider>>
+            imageProviders = new ConcurrentHashMap<>();
+
+    // The resources in use are serialized in writeObject
+    private transient Map<String, ResourceReference> imageResources =
+            new ConcurrentHashMap<>();
+    private transient ReferenceQueue<AbstractStreamResource>
+            collectedResources = new ReferenceQueue<>();
+
+    private AvatarResourceHandler() {
+    }
+
+    /**
+     * Gets the handler of the session, adding one to the session if there is
+     * none yet. The session should be locked.
+     */
+    static AvatarResourceHandler get(VaadinSession session) {
+        AvatarResourceHandler handler = session
+                .getAttribute(AvatarResourceHandler.class);
+        if (handler == null) {
+            handler = new AvatarResourceHandler();
+            session.setAttribute(AvatarResourceHandler.class, handler);
+            session.addRequestHandler(handler);
+        }
+        return handler;
+    }
+
+    /**
+     * Gets the signed URL of the image of the given user, fetched with the
+     * given image provider when requested.
+     */
+    String getImageUrl(String providerId, AvatarImageProvider imageProvider,
+            String userId) {
+        WeakReference<AvatarImageProvider> reference = imageProviders
+                .get(providerId);
+        if (reference == null || reference.get() == null) {
+            imageProviders.values().removeIf(ref -> ref.get() == null);
+            imageProviders.put(providerId, new WeakReference<>(imageProvider));
+        }
+        String encodedUserId = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(userId.getBytes(StandardCharsets.UTF_8));
+        return PATH_PREFIX
+                + sign(signingKey, providerId + '/' + encodedUserId);
+    }
+
+    /**
+     * Gets the URL of the given image resource once it has been added to the
+     * handler with {@link #addImageResource(AbstractStreamResource)}. The URL
+     * does not depend on the session, it can be created before the avatar is
+     * attached. The URL ends with the encoded name of the resource, like the
+     * URLs of the resources registered to the session.
+     */
+    static String getImageResourceUrl(AbstractStreamResource resource) {
+        try {
+            return PATH_PREFIX + RESOURCE_PATH + '/' + resource.getId() + '/'
+                    + URLEncoder.encode(resource.getName(),
+                            StandardCharsets.UTF_8.name()).replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds an image resource to be served by its id for as long as the
+     * resource is in use.
+     */
+    void addImageResource(AbstractStreamResource resource) {
+        ResourceReference reference;
+        while ((reference = (ResourceReference) collectedResources
+                .poll()) != null) {
+            imageResources.remove(reference.id, reference);
+        }
+        reference = imageResources.get(resource.getId());
+        if (reference == null || reference.get() != resource) {
+            imageResources.put(resource.getId(), new ResourceReference(
+                    resource, collectedResources));
+        }
+    }
+
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null || !pathInfo.startsWith("/" + PATH_PREFIX)) {
+            return false;
+        }
+        String[] parts = pathInfo.substring(PATH_PREFIX.length() + 1)
+                .split("/", 2);
+        AbstractStreamResource resource;
+        if (parts.length != 2) {
+            resource = null;
+        } else if (RESOURCE_PATH.equals(parts[0])) {
+            // The name of the resource after the id is not needed
+            int separator = parts[1].indexOf('/');
+            ResourceReference reference = imageResources.get(separator < 0
+                    ? parts[1] : parts[1].substring(0, separator));
+            resource = reference == null ? null : reference.get();
+        } else if (PROXY_PATH.equals(parts[0])) {
+            resource = AvatarImageProxy.getImageByClientPath(parts[1]);
+        } else {
+            resource = fetchImage(parts[0], parts[1]);
+        }
+        // Loaded by this request, without the session locked
+        if (resource instanceof AvatarStore.DeferredImage) {
+            resource = ((AvatarStore.DeferredImage) resource).load();
+        }
+        if (!(resource instanceof StreamResource)
+                || resource instanceof AvatarFileResource
+                        && !((AvatarFileResource) resource).getFile()
+                                .isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "Avatar image not found");
+            return true;
+        }
+        writeImage(session, (StreamResource) resource, response);
+        return true;
+    }
+
+    /**
+     * Fetches the image of a signed URL. The image provider is called without
+     * the session locked, so that loading the image does not block the other
+     * requests of the session.
+     */
+    private AbstractStreamResource fetchImage(String providerId,
+            String signedUserId) {
+        String path = verify(signingKey, providerId + '/' + signedUserId);
+        if (path == null) {
+            return null;
+        }
+        String encodedUserId = path.substring(providerId.length() + 1);
+        WeakReference<AvatarImageProvider> reference = imageProviders
+                .get(providerId);
+        AvatarImageProvider imageProvider = reference == null ? null
+                : reference.get();
+        if (imageProvider == null) {
+            return null;
+        }
+        String userId;
+        try {
+            userId = new String(Base64.getUrlDecoder().decode(encodedUserId),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Map<String, AbstractStreamResource> images = imageProvider
+                .fetchImages(Collections.singleton(userId));
+        return images == null ? null : images.get(userId);
+    }
+
+    /**
+     * Creates a random key for {@link #sign(byte[], String)}.
+     */
+    static byte[] createSigningKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    /**
+     * Signs the given URL path with the given key.
+     *
+     * @return the path with the signature appended as its last segment
+     */
+    static String sign(byte[] key, String path) {
+        return path + '/' + createSignature(key, path);
+    }
+
+    /**
+     * Verifies the signature of a path signed with
+     * {@link #sign(byte[], String)}.
+     *
+     * @return the path without the signature, or {@code null} if the
+     *         signature does not match
+     */
+    static String verify(byte[] key, String signedPath) {
+        int separator = signedPath.lastIndexOf('/');
+        if (separator < 0) {
+            return null;
+        }
+        String path = signedPath.substring(0, separator);
+        byte[] signature = createSignature(key, path)
+                .getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(signature, signedPath
+                .substring(separator + 1).getBytes(StandardCharsets.US_ASCII))
+                        ? path
+                        : null;
+    }
+
+    private static String createSignature(byte[] key, String path) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(new SecretKeySpec(key, SIGNATURE_ALGORITHM));
+            byte[] signature = mac
+                    .doFinal(path.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    Arrays.copyOf(signature, SIGNATURE_LENGTH));
+        } catch (GeneralSecurityException e) {
+            // Every Java platform supports HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeImage(VaadinSession session,
+            StreamResource resource, VaadinResponse response)
+            throws IOException {
+        String contentType = session.getService()
+                .getMimeType(resource.getName());
+        response.setContentType(contentType == null
+                ? "application/octet-stream" : contentType);
+        response.setCacheTime(resource.getCacheTime());
+        if (resource instanceof AvatarFileResource) {
+            long length = ((AvatarFileResource) resource).getFile().length();
+            if (length <= Integer.MAX_VALUE) {
+                response.setContentLength((int) length);
+            }
+        }
+        try (OutputStream out = response.getOutputStream()) {
+            resource.getWriter().accept(out, session);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        List<AbstractStreamResource> resources = new ArrayList<>();
+        for (ResourceReference reference : imageResources.values()) {
+            AbstractStreamResource resource = reference.get();
+            if (resource != null) {
+                resources.add(resource);
+            }
+        }
+        out.writeInt(resources.size());
+        for (AbstractStreamResource resource : resources) {
+            out.writeObject(resource);
+        }
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        imageProviders = new ConcurrentHashMap<>();
+        imageResources = new ConcurrentHashMap<>();
+        collectedResources = new ReferenceQueue<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            // Only kept if the avatars referring to the resource are restored
+            // from the same stream
+            addImageResource((AbstractStreamResource) in.readObject());
+        }
+    }
+
+    private static class ResourceReference
+            extends WeakReference<AbstractStreamResource> {
+        private final String id;
+
+        private ResourceReference(AbstractStreamResource resource,
+                ReferenceQueue<AbstractStreamResource> queue) {
+            super(resource, queue);
+            id = resource.getId();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import com.vaadin.flow.server.AbstractStreamResource;
+import com.vaadin.flow.server.StreamResource;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Application wide store of avatar images by id, for example the images
+ * imported with {@link AvatarBulkImport}.
+ * <p>
+ * An image is set to an avatar with
+ * {@code avatar.setImageResource(store.getImage(id))}. The store is also an
+ * {@link AvatarImageProvider}, so the items of an avatar group can refer to
+ * the images by setting the image id as the user id of the items and the
+ * store as the image provider of the avatar group.
+ * <p>
+ * As an image provider, the store does not load the missing images while the
+ * session is locked. The images are loaded by the request handler of the
+ * avatars when the browser requests them.
+ * <p>
+ * Stores are identified by name, and a store is serialized as its name only,
+ * so the images are not serialized with the sessions that refer to the store.
+ * The store is thread safe.
+ *
+ * @see AvatarGroup#setImageProvider(AvatarImageProvider)
+ * @author Vaadin Ltd
+ */
+public final class AvatarStore implements AvatarImageProvider {
+
+    private static final Map<String, AvatarStore> stores =
+            new ConcurrentHashMap<>();
+
+    private final String name;
+    // Not serialized, the store with the same name is used after
+    // deserialization
+    private transient Map<String, AbstractStreamResource> images =
+            new ConcurrentHashMap<>();
+    // Only the ids of the images in the store are counted
+    private transient Map<String, AtomicLong> requestCounts =
+            new ConcurrentHashMap<>();
+    private transient volatile ImageLoading imageLoading;
+
+    private AvatarStore(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the store with the given name, creating it if there is none yet.
+     *
+     * @param name
+     *            the name of the store, not {@code null}
+     * @return the store with the given name
+     */
+    public static AvatarStore get(String name) {
+        Objects.requireNonNull(name, "The store name should not be null");
+        return stores.computeIfAbsent(name, AvatarStore::new);
+    }
+
+    /**
+     * Gets the name of the store.
+     *
+     * @return the name of the store
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the image with the given id, replacing any previous image with
+     * the id.
+     *
+     * @param id
+     *            the id of the image, not {@code null}
+     * @param image
+     *            the image, or {@code null} to remove the image
+     */
+    public void putImage(String id, AbstractStreamResource image) {
+        Objects.requireNonNull(id, "The image id should not be null");
+        if (image == null) {
+            images.remove(id);
+            requestCounts.remove(id);
+        } else {
+            images.put(id, image);
+        }
+    }
+
+    /**
+     * Sets the loader of the images that are not in the store. An image is
+     * loaded and transcoded to the given size when it is first requested,
+     * and then kept in the store.
+     *
+     * @see AvatarWarmup
+     * @param size
+     *            the width and height of the loaded images in pixels,
+     *            greater than zero
+     * @param loader
+     *            the loader of the image content by id, or {@code null} to
+     *            not load missing images
+     */
+    public void setImageLoader(int size, AvatarBulkImport.ImageLoader loader) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    "The size should be greater than zero");
+        }
+        imageLoading = loader == null ? null : new ImageLoading(size, loader);
+    }
+
+    /**
+     * Gets the image with the given id, loading it if it is not in the store
+     * and an image loader has been set.
+     * <p>
+     * Loading an image blocks the calling thread. To not block the other
+     * requests of a session, the store should rather be used as the image
+     * provider of an avatar group, or the image should be fetched with
+     * {@link #fetchImages(Set)}, which both load the image when the browser
+     * requests it.
+     *
+     * @see #setImageLoader(int, AvatarBulkImport.ImageLoader)
+     * @param id
+     *            the id of the image, not {@code null}
+     * @return the image, or {@code null} if there is no image with the id
+     */
+    public AbstractStreamResource getImage(String id) {
+        Objects.requireNonNull(id, "The image id should not be null");
+        AbstractStreamResource image = images.get(id);
+        if (image != null) {
+            countRequest(id);
+            return image;
+        }
+        ImageLoading loading = imageLoading;
+        if (loading == null) {
+            return null;
+        }
+        try {
+            image = loading.load(id);
+        } catch (IOException | RuntimeException e) {
+            LoggerFactory.getLogger(AvatarStore.class)
+                    .warn("Failed to load the avatar image " + id, e);
+            return null;
+        }
+        if (image == null) {
+            return null;
+        }
+        // An image loaded concurrently is kept
+        AbstractStreamResource loaded = images.putIfAbsent(id, image);
+        countRequest(id);
+        return loaded == null ? image : loaded;
+    }
+
+    private void countRequest(String id) {
+        requestCounts.computeIfAbsent(id, key -> new AtomicLong())
+                .incrementAndGet();
+    }
+
+    /**
+     * Checks whether the image with the given id is in the store, without
+     * loading it.
+     *
+     * @param id
+     *            the id of the image, not {@code null}
+     * @return {@code true} if the image is in the store
+     */
+    public boolean containsImage(String id) {
+        Objects.requireNonNull(id, "The image id should not be null");
+        return images.containsKey(id);
+    }
+
+    /**
+     * Gets the ids of the images that have been requested the most times
+     * with {@link #getImage(String)} or as an image provider, most requested
+     * first. The requests of ids without an image are not counted.
+     *
+     * @param limit
+     *            the maximum number of ids to get, not negative
+     * @return the most requested ids
+     */
+    public List<String> getMostRequestedIds(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit should not be negative");
+        }
+        return requestCounts.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, AtomicLong> entry) -> entry
+                                .getValue().get())
+                        .reversed())
+                .limit(limit).map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the number of images in the store.
+     *
+     * @return the number of images
+     */
+    public int size() {
+        return images.size();
+    }
+
+    /**
+     * Removes all the images and the request counts from the store.
+     */
+    public void clear() {
+        images.clear();
+        requestCounts.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The images that are not in the store are not loaded by this method. If
+     * an image loader has been set, a resource is provided for each of them
+     * that loads the image when the browser requests it.
+     */
+    @Override
+    public Map<String, AbstractStreamResource> fetchImages(
+            Set<String> userIds) {
+        Map<String, AbstractStreamResource> result = new HashMap<>();
+        boolean loading = imageLoading != null;
+        for (String userId : userIds) {
+            AbstractStreamResource image = images.get(userId);
+            if (image != null) {
+                countRequest(userId);
+                result.put(userId, image);
+            } else if (loading) {
+                result.put(userId, new DeferredImage(this, userId));
+            }
+        }
+        return result;
+    }
+
+    private Object readResolve() {
+        return get(name);
+    }
+
+    /**
+     * An image that is loaded with {@link #getImage(String)} when it is
+     * requested. The avatar request handler serves the loaded image in its
+     * place, outside of the session lock.
+     */
+    static class DeferredImage extends StreamResource {
+        private final AvatarStore store;
+        private final String id;
+
+        private DeferredImage(AvatarStore store, String id) {
+            super(id, (stream, session) -> {
+                AbstractStreamResource image = store.getImage(id);
+                if (!(image instanceof StreamResource)) {
+                    throw new IOException("No image for id " + id);
+                }
+                ((StreamResource) image).getWriter().accept(stream, session);
+            });
+            this.store = store;
+            this.id = id;
+        }
+
+        /**
+         * Gets the image, loading it if it is not in the store.
+         *
+         * @return the image, or {@code null} if it cannot be loaded
+         */
+        AbstractStreamResource load() {
+            return store.getImage(id);
+        }
+    }
+
+    private static class ImageLoading {
+        private final int size;
+        private final AvatarBulkImport.ImageLoader loader;
+
+        private ImageLoading(int size, AvatarBulkImport.ImageLoader loader) {
+            this.size = size;
+            this.loader = loader;
+        }
+
+        private AbstractStreamResource load(String id) throws IOException {
+            byte[] image = loader.load(id);
+            return image == null ? null
+                    : AvatarImageTranscoder.transcodeUncached(image, size);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Application-wide pool for the names and abbreviations of avatars and avatar
+ * group items.
+ * <p>
+ * When the pool is enabled, {@link Avatar#setName(String)},
+ * {@link Avatar#setAbbreviation(String)},
+ * {@link AvatarGroup.AvatarGroupItem#setName(String)} and
+ * {@link AvatarGroup.AvatarGroupItem#setAbbreviation(String)} store a shared
+ * instance of equal strings, so the same names displayed in many sessions are
+ * kept in memory only once. The pool is disabled by default.
+ * <p>
+ * The pool only references its strings weakly, so strings that are no longer
+ * used by any avatar are garbage collected as usual. The number of pooled
+ * strings is bounded by {@link #getMaximumSize()}, strings that do not fit in
+ * the pool are stored as they are.
+ *
+ * @author Vaadin Ltd
+ */
+public final class AvatarStringPool {
+
+    private static final int STRIPE_COUNT = 16;
+    private static final int DEFAULT_MAXIMUM_SIZE = 16384;
+
+    private static final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    static {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    // The maximum size of each stripe in use, fewer stripes are used when
+    // the maximum size of the pool is below the number of stripes
+    private static volatile int[] stripeSizes = getStripeSizes(
+            DEFAULT_MAXIMUM_SIZE);
+
+    private AvatarStringPool() {
+    }
+
+    /**
+     * Sets whether the names and abbreviations of avatars are pooled.
+     * Disabling the pool empties it.
+     * <p>
+     * The pool only applies to the strings that are set after enabling it.
+     *
+     * @param enabled
+     *            {@code true} to pool the strings, {@code false} to store them
+     *            as they are
+     */
+    public static void setEnabled(boolean enabled) {
+        AvatarStringPool.enabled = enabled;
+        if (!enabled) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.strings.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets whether the names and abbreviations of avatars are pooled.
+     *
+     * @return {@code true} if the strings are pooled, {@code false} otherwise
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the maximum number of strings in the pool. The default is
+     * {@code 16384}.
+     * <p>
+     * Lowering the maximum size does not remove strings from the pool, they
+     * are removed once they are no longer used.
+     *
+     * @param maximumSize
+     *            the maximum number of pooled strings, greater than zero
+     */
+    public static void setMaximumSize(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum size should be greater than zero");
+        }
+        AvatarStringPool.maximumSize = maximumSize;
+        stripeSizes = getStripeSizes(maximumSize);
+    }
+
+    /**
+     * Gets the maximum number of strings in the pool.
+     *
+     * @return the maximum number of pooled strings
+     */
+    public static int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the pooled instance of the given string, adding the string to the
+     * pool if it has room. Returns the string as it is if the pool is
+     * disabled.
+     */
+    static String intern(String value) {
+        if (value == null || !enabled) {
+            return value;
+        }
+        int[] sizes = stripeSizes;
+        int hash = value.hashCode();
+        int index = ((hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1))
+                % sizes.length;
+        Stripe stripe = stripes[index];
+        synchronized (stripe) {
+            WeakReference<String> reference = stripe.strings.get(value);
+            String pooled = reference == null ? null : reference.get();
+            if (pooled != null) {
+                return pooled;
+            }
+            // size() expunges the strings that have been garbage collected
+            if (stripe.strings.size() < sizes[index]) {
+                stripe.strings.put(value, new WeakReference<>(value));
+            }
+            return value;
+        }
+    }
+
+    private static int[] getStripeSizes(int maximumSize) {
+        int[] sizes = new int[Math.min(STRIPE_COUNT, maximumSize)];
+        for (int i = 0; i < sizes.length; i++) {
+            // The remainder is spread over the first stripes
+            sizes[i] = maximumSize / sizes.length
+                    + (i < maximumSize % sizes.length ? 1 : 0);
+        }
+        return sizes;
+    }
+
+    private static class Stripe {
+        private final Map<String, WeakReference<String>> strings =
+                new WeakHashMap<>();
+    }
+}
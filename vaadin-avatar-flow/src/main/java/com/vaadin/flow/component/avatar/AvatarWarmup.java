@@ -0,0 +1,170 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Warms up an {@link AvatarStore} at startup, so that the most requested
+ * avatar images are ready before they are requested.
+ * <p>
+ * The ids of the most requested images are saved to a file, for example when
+ * the application is stopped, with
+ * {@link #saveMostRequestedIds(AvatarStore, int, Path)}. At the next startup,
+ * the images are loaded and transcoded in the background with
+ * {@link #warmUp(AvatarStore, int, AvatarBulkImport.ImageLoader, Path)}, while
+ * any other image is still loaded when it is first requested, if the store
+ * has an image loader.
+ *
+ * <pre>
+ * store.setImageLoader(64, loader);
+ * AvatarWarmup.warmUp(store, 64, loader, file);
+ * ...
+ * AvatarWarmup.saveMostRequestedIds(store, 1000, file);
+ * </pre>
+ *
+ * @see AvatarStore#setImageLoader(int, AvatarBulkImport.ImageLoader)
+ * @author Vaadin Ltd
+ */
+public final class AvatarWarmup {
+
+    private AvatarWarmup() {
+    }
+
+    /**
+     * Saves the ids of the most requested images of the given store to the
+     * given file, one id per line, most requested first. The file is
+     * replaced only after all the ids have been written.
+     *
+     * @param store
+     *            the store, not {@code null}
+     * @param limit
+     *            the maximum number of ids to save, not negative
+     * @param file
+     *            the file to save the ids to, not {@code null}
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void saveMostRequestedIds(AvatarStore store, int limit,
+            Path file) throws IOException {
+        Objects.requireNonNull(store, "The store should not be null");
+        Objects.requireNonNull(file, "The file should not be null");
+        List<String> ids = store.getMostRequestedIds(limit).stream()
+                // An id with a line break cannot be read back
+                .filter(id -> id.indexOf('\n') < 0 && id.indexOf('\r') < 0)
+                .collect(Collectors.toList());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, ids, StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the ids saved with
+     * {@link #saveMostRequestedIds(AvatarStore, int, Path)}.
+     *
+     * @param file
+     *            the file to read the ids from, not {@code null}
+     * @return the ids, or an empty list if the file does not exist
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static List<String> loadIds(Path file) throws IOException {
+        Objects.requireNonNull(file, "The file should not be null");
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        return Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                .filter(id -> !id.isEmpty()).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the images with the ids saved in the given file into the given
+     * store in the background.
+     *
+     * @see #warmUp(AvatarStore, int, AvatarBulkImport.ImageLoader,
+     *      Collection)
+     * @param store
+     *            the store to warm up, not {@code null}
+     * @param size
+     *            the width and height of the images in pixels, greater than
+     *            zero
+     * @param loader
+     *            the loader of the image content by id, not {@code null}
+     * @param file
+     *            the file with the ids, not {@code null}
+     * @return a future that is completed when all the images have been
+     *         loaded or have failed
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static CompletableFuture<AvatarBulkImport.Result> warmUp(
+            AvatarStore store, int size, AvatarBulkImport.ImageLoader loader,
+            Path file) throws IOException {
+        return warmUp(store, size, loader, loadIds(file));
+    }
+
+    /**
+     * Loads the images with the given ids into the given store in the
+     * background, in parallel with an {@link AvatarBulkImport}. The images
+     * that are already in the store are not loaded again.
+     *
+     * @param store
+     *            the store to warm up, not {@code null}
+     * @param size
+     *            the width and height of the images in pixels, greater than
+     *            zero
+     * @param loader
+     *            the loader of the image content by id, not {@code null}
+     * @param ids
+     *            the ids of the images to load, not {@code null}
+     * @return a future that is completed when all the images have been
+     *         loaded or have failed
+     */
+    public static CompletableFuture<AvatarBulkImport.Result> warmUp(
+            AvatarStore store, int size, AvatarBulkImport.ImageLoader loader,
+            Collection<String> ids) {
+        Objects.requireNonNull(ids, "The ids should not be null");
+        Objects.requireNonNull(loader, "The loader should not be null");
+        AvatarBulkImport bulkImport = new AvatarBulkImport(store, size);
+        List<String> missingIds = ids.stream()
+                .filter(id -> !store.containsImage(id))
+                .collect(Collectors.toList());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return bulkImport.importImages(missingIds, loader);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "vaadin-avatar-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+}
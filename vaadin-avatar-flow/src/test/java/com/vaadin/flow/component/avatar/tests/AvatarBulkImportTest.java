@@ -0,0 +1,166 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.avatar.AvatarBulkImport;
+import com.vaadin.flow.component.avatar.AvatarStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarBulkImportTest {
+
+    private AvatarStore store = AvatarStore.get("import-test");
+
+    @After
+    public void clearStore() {
+        store.clear();
+    }
+
+    @Test
+    public void importImages_imagesStoredById()
+            throws InterruptedException {
+        AvatarBulkImport bulkImport = new AvatarBulkImport(store, 32);
+        bulkImport.setParallelism(4);
+        bulkImport.setQueueCapacity(2);
+
+        AvatarBulkImport.Result result = bulkImport.importImages(
+                createIds(20), id -> AvatarTestImages.createImage(100, 80));
+
+        Assert.assertEquals(20, result.getImportedCount());
+        Assert.assertTrue(result.getFailures().isEmpty());
+        Assert.assertEquals(20, store.size());
+        Assert.assertNotNull(store.getImage("user-19"));
+    }
+
+    @Test
+    public void importImages_progressReported() throws InterruptedException {
+        AvatarBulkImport bulkImport = new AvatarBulkImport(store, 32);
+        AtomicInteger progressCount = new AtomicInteger();
+        AtomicInteger maxImported = new AtomicInteger();
+        bulkImport.setProgressListener((imported, failed) -> {
+            progressCount.incrementAndGet();
+            maxImported.accumulateAndGet(imported, Math::max);
+        });
+
+        bulkImport.importImages(createIds(10),
+                id -> AvatarTestImages.createImage(100, 80));
+
+        Assert.assertEquals(10, progressCount.get());
+        Assert.assertEquals(10, maxImported.get());
+    }
+
+    @Test(timeout = 10000)
+    public void progressListenerThrows_allImagesImported()
+            throws InterruptedException {
+        AvatarBulkImport bulkImport = new AvatarBulkImport(store, 32);
+        bulkImport.setParallelism(2);
+        bulkImport.setQueueCapacity(1);
+        bulkImport.setProgressListener((imported, failed) -> {
+            throw new IllegalStateException("Listener failed");
+        });
+
+        AvatarBulkImport.Result result = bulkImport.importImages(
+                createIds(10), id -> AvatarTestImages.createImage(100, 80));
+
+        Assert.assertEquals(10, result.getImportedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void loaderThrowsError_errorRethrown() throws InterruptedException {
+        AvatarBulkImport bulkImport = new AvatarBulkImport(store, 32);
+        bulkImport.setParallelism(2);
+        bulkImport.setQueueCapacity(1);
+        Error error = new Error("Loader failed");
+
+        try {
+            bulkImport.importImages(createIds(100), id -> {
+                throw error;
+            });
+            Assert.fail("The error should have been rethrown");
+        } catch (Error e) {
+            Assert.assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void importInvalidImage_failureReported()
+            throws InterruptedException {
+        AvatarBulkImport bulkImport = new AvatarBulkImport(store, 32);
+
+        AvatarBulkImport.Result result = bulkImport.importImages(
+                createIds(5), id -> "user-3".equals(id) ? new byte[] { 1 }
+                        : AvatarTestImages.createImage(100, 80));
+
+        Assert.assertEquals(4, result.getImportedCount());
+        Assert.assertEquals(Arrays.asList("user-3"),
+                new ArrayList<>(result.getFailures().keySet()));
+        Assert.assertNull(store.getImage("user-3"));
+    }
+
+    @Test
+    public void storeFetchImages_storedImagesProvided()
+            throws InterruptedException {
+        new AvatarBulkImport(store, 32).importImages(createIds(2),
+                id -> AvatarTestImages.createImage(100, 80));
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("user-0", "user-1")),
+                store.fetchImages(new HashSet<>(
+                        Arrays.asList("user-0", "user-1", "unknown")))
+                        .keySet());
+    }
+
+    @Test
+    public void serializeStore_sameStoreAfterDeserialization()
+            throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(store);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertSame(store, in.readObject());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setParallelismZero_throws() {
+        new AvatarBulkImport(store, 32).setParallelism(0);
+    }
+
+    private static List<String> createIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("user-" + i);
+        }
+        return ids;
+    }
+}
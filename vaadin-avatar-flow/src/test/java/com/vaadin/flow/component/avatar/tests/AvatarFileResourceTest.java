@@ -0,0 +1,74 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.avatar.AvatarFileResource;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarFileResourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void createWithFile_namedByFile() throws IOException {
+        File file = folder.newFile("avatar.png");
+
+        AvatarFileResource resource = new AvatarFileResource(file);
+
+        Assert.assertEquals("avatar.png", resource.getName());
+        Assert.assertSame(file, resource.getFile());
+    }
+
+    @Test
+    public void write_fileContentTransferred() throws IOException {
+        byte[] content = new byte[100000];
+        new Random(1).nextBytes(content);
+        File file = folder.newFile("avatar.png");
+        Files.write(file.toPath(), content);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AvatarFileResource(file).getWriter().accept(out, null);
+
+        Assert.assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void writeMissingFile_throws() throws IOException {
+        File file = new File(folder.getRoot(), "missing.png");
+
+        new AvatarFileResource(file).getWriter()
+                .accept(new ByteArrayOutputStream(), null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void createWithoutFile_throws() {
+        new AvatarFileResource((File) null);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.avatar.AvatarGroup;
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.component.avatar.AvatarGroupItemsBinding;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarGroupItemsBindingTest {
+
+    private UI ui = new UI();
+    private AvatarGroup avatarGroup = new AvatarGroup();
+    private TestPublisher publisher = new TestPublisher();
+
+    private List<AvatarGroupItem> items = Arrays.asList(
+            new AvatarGroupItem("Foo Bar"), new AvatarGroupItem("Bar Baz"));
+
+    @Before
+    public void setup() {
+        AvatarGroupItemsBinding.bind(avatarGroup, publisher);
+    }
+
+    @Test
+    public void detached_notSubscribed() {
+        Assert.assertNull(publisher.subscriber);
+    }
+
+    @Test
+    public void attach_subscribedWithDemandOfOne() {
+        ui.add(avatarGroup);
+
+        Assert.assertNotNull(publisher.subscriber);
+        Assert.assertEquals(1, publisher.requested);
+    }
+
+    @Test
+    public void onNext_itemsSet_nextRequestedWhenClientAcknowledges() {
+        ui.add(avatarGroup);
+
+        publisher.subscriber.onNext(items);
+        Assert.assertEquals(items, avatarGroup.getItems());
+        Assert.assertEquals(1, publisher.requested);
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        Assert.assertEquals(1, publisher.requested);
+
+        acknowledge(ui);
+        Assert.assertEquals(2, publisher.requested);
+    }
+
+    @Test
+    public void synchronousPublisher_oneItemListSentPerResponse() {
+        AvatarGroup synchronousGroup = new AvatarGroup();
+        ui.add(synchronousGroup);
+        AvatarGroupItemsBinding.bind(synchronousGroup,
+                new IterablePublisher(Arrays.asList(createItems(1),
+                        createItems(2), createItems(3))));
+
+        for (int size = 1; size <= 3; size++) {
+            ui.getInternals().getStateTree()
+                    .runExecutionsBeforeClientResponse();
+            Assert.assertEquals(size, ((JsonArray) synchronousGroup
+                    .getElement().getPropertyRaw("items")).length());
+            acknowledge(ui);
+        }
+    }
+
+    @Test
+    public void hiddenAvatarGroup_onNext_nextRequestedWhenItemsSent() {
+        ui.add(avatarGroup);
+        avatarGroup.setVisible(false);
+
+        publisher.subscriber.onNext(items);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        Assert.assertEquals(1, publisher.requested);
+
+        avatarGroup.setVisible(true);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        acknowledge(ui);
+        Assert.assertEquals(2, publisher.requested);
+    }
+
+    @Test
+    public void throttledAvatarGroup_onNext_nextRequestedWhenItemsSent()
+            throws Exception {
+        AvatarTestSession session = new AvatarTestSession();
+        UI sessionUi = session.createUI();
+        sessionUi.add(avatarGroup);
+        avatarGroup.setClientUpdateInterval(500);
+        publisher.subscriber.onNext(items);
+        sessionUi.getInternals().getStateTree()
+                .runExecutionsBeforeClientResponse();
+        acknowledge(sessionUi);
+        Assert.assertEquals(2, publisher.requested);
+
+        publisher.subscriber.onNext(items.subList(0, 1));
+        sessionUi.getInternals().getStateTree()
+                .runExecutionsBeforeClientResponse();
+        acknowledge(sessionUi);
+        Assert.assertEquals(2, publisher.requested);
+
+        Assert.assertTrue(session.runPendingAccessTask());
+        sessionUi.getInternals().getStateTree()
+                .runExecutionsBeforeClientResponse();
+        acknowledge(sessionUi);
+        Assert.assertEquals(3, publisher.requested);
+    }
+
+    @Test
+    public void detach_subscriptionCancelled() {
+        ui.add(avatarGroup);
+        ui.remove(avatarGroup);
+
+        Assert.assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void reattach_subscribedAgain() {
+        ui.add(avatarGroup);
+        Subscriber<?> firstSubscriber = publisher.subscriber;
+        ui.remove(avatarGroup);
+        ui.add(avatarGroup);
+
+        Assert.assertNotSame(firstSubscriber, publisher.subscriber);
+    }
+
+    @Test
+    public void removeBinding_subscriptionCancelled() {
+        avatarGroup = new AvatarGroup();
+        publisher = new TestPublisher();
+        ui.add(avatarGroup);
+        AvatarGroupItemsBinding binding = AvatarGroupItemsBinding
+                .bind(avatarGroup, publisher);
+
+        binding.remove();
+
+        Assert.assertTrue(publisher.cancelled);
+    }
+
+    private static void acknowledge(UI ui) {
+        ui.getInternals().dumpPendingJavaScriptInvocations()
+                .forEach(invocation -> invocation.complete(Json.createNull()));
+    }
+
+    private static List<AvatarGroupItem> createItems(int count) {
+        List<AvatarGroupItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new AvatarGroupItem("User " + i));
+        }
+        return items;
+    }
+
+    /**
+     * Emits the item lists synchronously when they are requested, like
+     * {@code Flux.fromIterable}.
+     */
+    private static class IterablePublisher
+            implements Publisher<Collection<AvatarGroupItem>> {
+        private final List<List<AvatarGroupItem>> itemLists;
+
+        private IterablePublisher(List<List<AvatarGroupItem>> itemLists) {
+            this.itemLists = itemLists;
+        }
+
+        @Override
+        public void subscribe(
+                Subscriber<? super Collection<AvatarGroupItem>> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int next;
+                private long demand;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    demand += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < itemLists.size()) {
+                        demand--;
+                        subscriber.onNext(itemLists.get(next++));
+                    }
+                    emitting = false;
+                }
+
+                @Override
+                public void cancel() {
+                    next = itemLists.size();
+                }
+            });
+        }
+    }
+
+    private static class TestPublisher
+            implements Publisher<Collection<AvatarGroupItem>> {
+        private Subscriber<? super Collection<AvatarGroupItem>> subscriber;
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void subscribe(
+                Subscriber<? super Collection<AvatarGroupItem>> subscriber) {
+            this.subscriber = subscriber;
+            cancelled = false;
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    requested += n;
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.avatar.AvatarGroup;
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupI18n;
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.server.StreamResource;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarGroupSerializationTest {
+
+    private static final int ITEM_COUNT = 1000;
+
+    // A name of about ten characters, a two letter abbreviation and a color
+    // index
+    private static final int MAX_SERIALIZED_ITEM_SIZE = 48;
+    // The user id and the image URL are about 40 characters more
+    private static final int MAX_SERIALIZED_ITEM_WITH_IMAGE_SIZE = 100;
+
+    // Static so that the serialized image provider does not capture it
+    private static final AtomicInteger imageFetches = new AtomicInteger();
+
+    @Test
+    public void serializedItemsWithinMaxSize() throws IOException {
+        List<AvatarGroupItem> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            AvatarGroupItem item = new AvatarGroupItem("User " + i);
+            item.setAbbreviation("U" + i % 10);
+            item.setColorIndex(i % 7);
+            items.add(item);
+        }
+
+        assertSerializedItemSize(items, MAX_SERIALIZED_ITEM_SIZE);
+    }
+
+    @Test
+    public void serializedItemsWithImageWithinMaxSize() throws IOException {
+        List<AvatarGroupItem> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            AvatarGroupItem item = new AvatarGroupItem("User " + i,
+                    "https://example.com/avatars/" + i + ".png");
+            item.setUserId("user-" + i);
+            item.setAbbreviation("U" + i % 10);
+            item.setColorIndex(i % 7);
+            items.add(item);
+        }
+
+        assertSerializedItemSize(items, MAX_SERIALIZED_ITEM_WITH_IMAGE_SIZE);
+    }
+
+    @Test
+    public void sharedNamesSerializedOnce() throws IOException {
+        List<AvatarGroupItem> items = new ArrayList<>();
+        String name = "A rather long name that is shared by all the items";
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(new AvatarGroupItem(name));
+        }
+
+        assertSerializedItemSize(items, name.length() / 2);
+    }
+
+    @Test
+    public void serializeAndDeserialize_itemsRestored()
+            throws IOException, ClassNotFoundException {
+        AvatarGroupItem item = new AvatarGroupItem("Foo Bar",
+                "https://vaadin.com/");
+        item.setAbbreviation("FB");
+        item.setColorIndex(3);
+        item.setUserId("foo");
+        AvatarGroupItem resourceItem = new AvatarGroupItem("Baz");
+        resourceItem.setImageResource(new StreamResource("baz.png",
+                () -> new ByteArrayInputStream(new byte[0])));
+
+        AvatarGroup avatarGroup = deserialize(
+                serialize(new AvatarGroup(item, new AvatarGroupItem(),
+                        resourceItem)));
+
+        List<AvatarGroupItem> items = avatarGroup.getItems();
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals("Foo Bar", items.get(0).getName());
+        Assert.assertEquals("FB", items.get(0).getAbbreviation());
+        Assert.assertEquals("https://vaadin.com/", items.get(0).getImage());
+        Assert.assertEquals(Integer.valueOf(3), items.get(0).getColorIndex());
+        Assert.assertEquals("foo", items.get(0).getUserId());
+
+        Assert.assertNull(items.get(1).getName());
+        Assert.assertNull(items.get(1).getAbbreviation());
+        Assert.assertNull(items.get(1).getImage());
+        Assert.assertNull(items.get(1).getColorIndex());
+        Assert.assertNull(items.get(1).getUserId());
+
+        Assert.assertEquals("baz.png",
+                items.get(2).getImageResource().getName());
+        Assert.assertEquals(resourceItem.getImage(), items.get(2).getImage());
+    }
+
+    @Test
+    public void serializeAndDeserialize_itemChangesSentToClient()
+            throws IOException, ClassNotFoundException {
+        AvatarGroup avatarGroup = deserialize(
+                serialize(new AvatarGroup(new AvatarGroupItem("Foo"))));
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        avatarGroup.getItems().get(0).setName("Bar");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        JsonArray items = (JsonArray) avatarGroup.getElement()
+                .getPropertyRaw("items");
+        Assert.assertEquals("Bar",
+                ((JsonObject) items.get(0)).getString("name"));
+    }
+
+    @Test
+    public void serializeWhileUpdateThrottled_updatesSentAfterDeserialization()
+            throws Exception {
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        AvatarGroup avatarGroup = new AvatarGroup(new AvatarGroupItem("Foo"));
+        avatarGroup.setClientUpdateInterval(500);
+        ui.add(avatarGroup);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        avatarGroup.add(new AvatarGroupItem("Bar"));
+
+        UI restoredUi = deserialize(serialize(ui));
+        AvatarTestSession restoredSession = (AvatarTestSession) restoredUi
+                .getSession();
+        AvatarGroup restoredGroup = (AvatarGroup) restoredUi.getChildren()
+                .findFirst().orElseThrow(AssertionError::new);
+
+        // The update pending when serialized
+        Assert.assertTrue(restoredSession.runPendingAccessTask());
+        restoredUi.getInternals().getStateTree()
+                .runExecutionsBeforeClientResponse();
+        Assert.assertEquals(2, getClientItems(restoredGroup).length());
+
+        // Later updates are not blocked by the lost trailing update
+        restoredGroup.add(new AvatarGroupItem("Baz"));
+        Assert.assertTrue(restoredSession.runPendingAccessTask());
+        restoredUi.getInternals().getStateTree()
+                .runExecutionsBeforeClientResponse();
+        Assert.assertEquals(3, getClientItems(restoredGroup).length());
+    }
+
+    @Test
+    public void serializeAndDeserialize_providedImagesNotFetchedAgain()
+            throws Exception {
+        byte[] image = new byte[] { 1, 2, 3 };
+        imageFetches.set(0);
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        AvatarGroupItem item = new AvatarGroupItem("Foo");
+        item.setUserId("foo");
+        AvatarGroup avatarGroup = new AvatarGroup(item);
+        avatarGroup.setImageProvider(userIds -> {
+            imageFetches.incrementAndGet();
+            return Collections.singletonMap("foo", new StreamResource(
+                    "foo.png", () -> new ByteArrayInputStream(image)));
+        });
+        ui.add(avatarGroup);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        String url = ((JsonObject) getClientItems(avatarGroup).get(0))
+                .getString("img");
+
+        UI restoredUi = deserialize(serialize(ui));
+        AvatarTestSession restoredSession = (AvatarTestSession) restoredUi
+                .getSession();
+        AvatarGroup restoredGroup = (AvatarGroup) restoredUi.getChildren()
+                .findFirst().orElseThrow(AssertionError::new);
+        // Sends the items again, the restored group should still hold the
+        // image of the user instead of fetching it again
+        restoredGroup.add(new AvatarGroupItem("Bar"));
+        restoredUi.getInternals().getStateTree()
+                .runExecutionsBeforeClientResponse();
+
+        Assert.assertEquals(1, imageFetches.get());
+        Assert.assertArrayEquals(image, restoredSession.request(url));
+        Assert.assertEquals(url, ((JsonObject) getClientItems(restoredGroup)
+                .get(0)).getString("img"));
+    }
+
+    @Test
+    public void serializeAndDeserialize_i18nRestored()
+            throws IOException, ClassNotFoundException {
+        AvatarGroupI18n i18n = deserialize(serialize(new AvatarGroupI18n()
+                .setAnonymous("anonyymi").setOneActiveUser("yksi")
+                .setManyActiveUsers("{count} aktiivista")));
+
+        Assert.assertEquals("anonyymi", i18n.getAnonymous());
+        Assert.assertEquals("yksi", i18n.getOneActiveUser());
+        Assert.assertEquals("{count} aktiivista", i18n.getManyActiveUsers());
+
+        Avatar.AvatarI18n avatarI18n = deserialize(
+                serialize(new Avatar.AvatarI18n().setAnonymous("anonyymi")));
+        Assert.assertEquals("anonyymi", avatarI18n.getAnonymous());
+    }
+
+    @Test
+    public void serializeAndDeserialize_emptyI18nRestored()
+            throws IOException, ClassNotFoundException {
+        AvatarGroupI18n i18n = deserialize(serialize(new AvatarGroupI18n()));
+
+        Assert.assertNull(i18n.getAnonymous());
+        Assert.assertNull(i18n.getOneActiveUser());
+        Assert.assertNull(i18n.getManyActiveUsers());
+        i18n.setOneActiveUser("yksi");
+        Assert.assertEquals("yksi", i18n.getOneActiveUser());
+    }
+
+    private static void assertSerializedItemSize(List<AvatarGroupItem> items,
+            int maxSize) throws IOException {
+        int emptySize = serialize(new AvatarGroup()).length;
+        int size = serialize(new AvatarGroup(items)).length;
+        int itemSize = (size - emptySize) / items.size();
+        Assert.assertTrue(String.format(
+                "An item takes %d bytes serialized, expected at most %d",
+                itemSize, maxSize), itemSize <= maxSize);
+    }
+
+    private static JsonArray getClientItems(AvatarGroup avatarGroup) {
+        return (JsonArray) avatarGroup.getElement().getPropertyRaw("items");
+    }
+
+    private static byte[] serialize(Serializable object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deserialize(byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        }
+    }
+}
@@ -16,16 +16,39 @@
 
 package com.vaadin.flow.component.avatar.tests;
 
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.avatar.AvatarGroup;
 import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
 import com.vaadin.flow.component.avatar.AvatarGroupVariant;
+import com.vaadin.flow.component.avatar.AvatarImageLoader;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder.TranscodedResource;
+import com.vaadin.flow.component.avatar.AvatarStringPool;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+import com.vaadin.flow.server.AbstractStreamResource;
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.server.StreamResourceRegistry;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * @author Vaadin Ltd.
@@ -43,6 +66,13 @@ public class AvatarGroupTest {
 
     private List<AvatarGroupItem> items = new ArrayList<>();
 
+    @After
+    public void resetStatics() {
+        AvatarStringPool.setEnabled(false);
+        AvatarStringPool.setMaximumSize(16384);
+        AvatarImageLoader.setExecutor(null);
+    }
+
     @Test
     public void setName_getName() {
         avatarGroupItem.setName(name);
@@ -55,12 +85,94 @@ public class AvatarGroupTest {
         Assert.assertEquals(avatarGroupItem.getAbbreviation(), abbr);
     }
 
+    @Test
+    public void stringPoolEnabled_itemsShareEqualNamesAndAbbreviations() {
+        AvatarStringPool.setEnabled(true);
+        avatarGroupItem.setName(new String(name));
+        avatarGroupItem.setAbbreviation(new String(abbr));
+
+        AvatarGroupItem otherItem = new AvatarGroupItem(new String(name));
+        otherItem.setAbbreviation(new String(abbr));
+
+        Assert.assertSame(avatarGroupItem.getName(), otherItem.getName());
+        Assert.assertSame(avatarGroupItem.getAbbreviation(),
+                otherItem.getAbbreviation());
+    }
+
+    @Test
+    public void stringPoolMaximumSizeBelowStripeCount_maximumSizePooled() {
+        assertPooledNames(4);
+    }
+
+    @Test
+    public void stringPoolMaximumSizeWithRemainder_maximumSizePooled() {
+        assertPooledNames(20);
+    }
+
     @Test
     public void setImgUrl_getImgUrl() {
         avatarGroupItem.setImage(imgUrl);
         Assert.assertEquals(avatarGroupItem.getImage(), imgUrl);
     }
 
+    @Test
+    public void setImageResource_getImageResource() {
+        StreamResource resource = new StreamResource("avatar.png",
+                () -> new ByteArrayInputStream(new byte[0]));
+        avatarGroup.setItems(avatarGroupItem);
+        avatarGroupItem.setImageResource(resource);
+
+        Assert.assertEquals(resource, avatarGroupItem.getImageResource());
+        Assert.assertNotNull(avatarGroupItem.getImage());
+    }
+
+    @Test
+    public void setStreamResource_imageServedByAvatarHandler() {
+        StreamResource resource = new StreamResource("user+.png",
+                () -> new ByteArrayInputStream(new byte[0]));
+        avatarGroupItem.setImageResource(resource);
+
+        Assert.assertEquals(
+                "VAADIN/dynamic/avatar/resource/" + resource.getId()
+                        + "/user%2B.png",
+                avatarGroupItem.getImage());
+    }
+
+    @Test
+    public void setImageResource_setImage_resourceReset() {
+        avatarGroupItem.setImageResource(new StreamResource("avatar.png",
+                () -> new ByteArrayInputStream(new byte[0])));
+        avatarGroupItem.setImage(imgUrl);
+
+        Assert.assertNull(avatarGroupItem.getImageResource());
+        Assert.assertEquals(imgUrl, avatarGroupItem.getImage());
+    }
+
+    @Test
+    public void setImageAsync_imageResourceSetWhenLoaded() {
+        List<Runnable> loads = new ArrayList<>();
+        AvatarImageLoader.setExecutor(loads::add);
+        avatarGroupItem.setImage(imgUrl);
+        avatarGroupItem.setImageAsync("avatar.png", () -> new byte[0]);
+        Assert.assertNull(avatarGroupItem.getImage());
+
+        loads.forEach(Runnable::run);
+        Assert.assertNotNull(avatarGroupItem.getImageResource());
+        Assert.assertNotNull(avatarGroupItem.getImage());
+    }
+
+    @Test
+    public void setImageAsync_setImageBeforeLoaded_loadedImageDiscarded() {
+        List<Runnable> loads = new ArrayList<>();
+        AvatarImageLoader.setExecutor(loads::add);
+        avatarGroupItem.setImageAsync("avatar.png", () -> new byte[0]);
+        avatarGroupItem.setImage(imgUrl);
+
+        loads.forEach(Runnable::run);
+        Assert.assertNull(avatarGroupItem.getImageResource());
+        Assert.assertEquals(imgUrl, avatarGroupItem.getImage());
+    }
+
     @Test
     public void setColorIndex_getColorIndex() {
         avatarGroupItem.setColorIndex(colorIndex);
@@ -125,6 +237,245 @@ public class AvatarGroupTest {
         Assert.assertEquals(items, avatarGroup.getItems());
     }
 
+    @Test
+    public void addItemsFromBackgroundThreads_allItemsAdded()
+            throws InterruptedException {
+        int threadCount = 8;
+        int itemsPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < itemsPerThread; j++) {
+                    AvatarGroupItem item = new AvatarGroupItem();
+                    avatarGroup.add(item);
+                    item.setName(name);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(threadCount * itemsPerThread,
+                avatarGroup.getItems().size());
+        Assert.assertTrue(avatarGroup.getItems().stream()
+                .allMatch(item -> name.equals(item.getName())));
+    }
+
+    @Test(timeout = 10000)
+    public void attachedAvatarGroup_changeItemsFromBackgroundThreads_allItemsSent()
+            throws Exception {
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        ui.add(avatarGroup);
+        int threadCount = 4;
+        int itemsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < itemsPerThread; j++) {
+                    AvatarGroupItem removedItem = new AvatarGroupItem();
+                    avatarGroup.add(new AvatarGroupItem(name), removedItem);
+                    avatarGroup.remove(removedItem);
+                }
+            });
+        }
+        executor.shutdown();
+        // Changes and sends the items with the session locked while the
+        // background threads change them
+        while (!executor.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            AvatarGroupItem item = new AvatarGroupItem();
+            avatarGroup.add(item);
+            avatarGroup.remove(item);
+            session.runPendingAccessTasks();
+            runBeforeClientResponse(ui);
+        }
+        session.runPendingAccessTasks();
+        runBeforeClientResponse(ui);
+
+        Assert.assertEquals(threadCount * itemsPerThread,
+                avatarGroup.getItems().size());
+        Assert.assertEquals(threadCount * itemsPerThread,
+                getClientItems().length());
+    }
+
+    @Test
+    public void getItems_returnsSnapshot() {
+        avatarGroup.setItems(avatarGroupItem);
+        List<AvatarGroupItem> snapshot = avatarGroup.getItems();
+
+        avatarGroup.add(avatarGroupItem2);
+
+        Assert.assertEquals(Arrays.asList(avatarGroupItem), snapshot);
+        Assert.assertEquals(Arrays.asList(avatarGroupItem, avatarGroupItem2),
+                avatarGroup.getItems());
+    }
+
+    @Test
+    public void setClientUpdateInterval_getClientUpdateInterval() {
+        avatarGroup.setClientUpdateInterval(500);
+
+        Assert.assertEquals(500, avatarGroup.getClientUpdateInterval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeClientUpdateInterval_throws() {
+        avatarGroup.setClientUpdateInterval(-1);
+    }
+
+    @Test
+    public void clientUpdateIntervalSet_updateWithinInterval_updateDeferred() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setClientUpdateInterval(60000);
+
+        avatarGroup.setItems(avatarGroupItem);
+        runBeforeClientResponse(ui);
+        Assert.assertEquals(1, getClientItems().length());
+
+        avatarGroup.add(avatarGroupItem2);
+        runBeforeClientResponse(ui);
+        Assert.assertEquals(1, getClientItems().length());
+    }
+
+    @Test
+    public void clientUpdateIntervalSet_updateWithinInterval_latestItemsSentAfterInterval()
+            throws Exception {
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        ui.add(avatarGroup);
+        avatarGroup.setClientUpdateInterval(500);
+
+        avatarGroup.setItems(avatarGroupItem);
+        runBeforeClientResponse(ui);
+        avatarGroup.add(avatarGroupItem2);
+        avatarGroup.add(new AvatarGroupItem("Baz Qux"));
+        runBeforeClientResponse(ui);
+        Assert.assertEquals(1, getClientItems().length());
+
+        // The trailing update accesses the UI once the interval has elapsed
+        Assert.assertTrue(session.runPendingAccessTask());
+        runBeforeClientResponse(ui);
+        Assert.assertEquals(3, getClientItems().length());
+        Assert.assertEquals("Baz Qux",
+                getClientItems().getObject(2).getString("name"));
+    }
+
+    @Test
+    public void hiddenAvatarGroup_setItems_itemsSentWhenVisible() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setVisible(false);
+
+        avatarGroup.setItems(avatarGroupItem, avatarGroupItem2);
+        runBeforeClientResponse(ui);
+        Assert.assertNull(avatarGroup.getElement().getPropertyRaw("items"));
+
+        avatarGroup.setVisible(true);
+        runBeforeClientResponse(ui);
+        Assert.assertEquals(2, getClientItems().length());
+    }
+
+    @Test
+    public void detachedAvatarGroup_setItems_itemsNotSent() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setItems(avatarGroupItem);
+        runBeforeClientResponse(ui);
+
+        ui.remove(avatarGroup);
+        avatarGroup.setItems(avatarGroupItem, avatarGroupItem2);
+        runBeforeClientResponse(ui);
+
+        Assert.assertEquals(1, getClientItems().length());
+    }
+
+    @Test
+    public void detachAvatarGroup_resourcesUnregistered() {
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        ui.add(avatarGroup);
+        AbstractStreamResource resource = new AbstractStreamResource() {
+            @Override
+            public String getName() {
+                return "avatar.png";
+            }
+        };
+        avatarGroupItem.setImageResource(resource);
+        avatarGroup.setItems(avatarGroupItem);
+        runBeforeClientResponse(ui);
+        URI uri = StreamResourceRegistry.getURI(resource);
+        Assert.assertTrue(session.getResourceRegistry().getResource(uri)
+                .isPresent());
+
+        ui.remove(avatarGroup);
+
+        Assert.assertFalse(session.getResourceRegistry().getResource(uri)
+                .isPresent());
+    }
+
+    @Test
+    public void reattachAvatarGroup_singleFreshSnapshotSent() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setCompactItemsPayload(true);
+        avatarGroup.setItems(avatarGroupItem);
+        runBeforeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        ui.remove(avatarGroup);
+        avatarGroup.setItems(avatarGroupItem, avatarGroupItem2);
+        avatarGroup.add(new AvatarGroupItem("Baz Qux"));
+        ui.add(avatarGroup);
+        runBeforeClientResponse(ui);
+
+        List<JsonObject> payloads = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .flatMap(invocation -> invocation.getInvocation()
+                        .getParameters().stream())
+                .filter(JsonObject.class::isInstance)
+                .map(JsonObject.class::cast).collect(Collectors.toList());
+        Assert.assertEquals(1, payloads.size());
+        Assert.assertEquals(3, (int) payloads.get(0).getNumber("size"));
+    }
+
+    @Test
+    public void setUserId_getUserId() {
+        avatarGroupItem.setUserId("foo");
+
+        Assert.assertEquals("foo", avatarGroupItem.getUserId());
+    }
+
+    @Test
+    public void imageProviderSet_distinctUserIdsFetchedOnce() {
+        List<Set<String>> fetched = new ArrayList<>();
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setImageProvider(userIds -> {
+            fetched.add(new HashSet<>(userIds));
+            return Collections.emptyMap();
+        });
+
+        avatarGroupItem.setUserId("foo");
+        avatarGroupItem2.setUserId("foo");
+        AvatarGroupItem itemWithImage = new AvatarGroupItem("Bar Baz",
+                imgUrl);
+        itemWithImage.setUserId("bar");
+        avatarGroup.setItems(avatarGroupItem, avatarGroupItem2,
+                itemWithImage);
+        runBeforeClientResponse(ui);
+
+        avatarGroupItem.setName(name);
+        runBeforeClientResponse(ui);
+
+        AvatarGroupItem addedItem = new AvatarGroupItem();
+        addedItem.setUserId("baz");
+        avatarGroup.add(addedItem);
+        runBeforeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList(Collections.singleton("foo"),
+                Collections.singleton("baz")), fetched);
+    }
+
     @Test
     public void setMaxItemsVisible_getMaxItemsVisible() {
         avatarGroup.setMaxItemsVisible(3);
@@ -168,4 +519,297 @@ public class AvatarGroupTest {
         Assert.assertEquals(i18n, avatarGroup.getI18n());
     }
 
+    @Test
+    public void compactItemsPayload_itemsSentAsColumns() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setCompactItemsPayload(true);
+        avatarGroupItem.setImage("https://cdn.example.com/avatars/1.png");
+        avatarGroupItem2.setImage("https://cdn.example.com/avatars/2.png");
+        avatarGroup.setItems(avatarGroupItem, avatarGroupItem2);
+        runBeforeClientResponse(ui);
+
+        Assert.assertNull(getClientItems());
+        JsonObject payload = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .flatMap(invocation -> invocation.getInvocation()
+                        .getParameters().stream())
+                .filter(JsonObject.class::isInstance)
+                .map(JsonObject.class::cast).findFirst()
+                .orElseThrow(AssertionError::new);
+        Assert.assertEquals(2, (int) payload.getNumber("size"));
+        Assert.assertEquals("Foo Bar", payload.getArray("name").getString(1));
+        Assert.assertEquals("https://cdn.example.com/avatars/",
+                payload.getArray("prefixes").getString(0));
+        Assert.assertEquals("2.png", payload.getArray("img").getString(1));
+        Assert.assertEquals(0,
+                (int) payload.getArray("imgPrefix").getNumber(1));
+        Assert.assertFalse(payload.hasKey("abbr"));
+    }
+
+    @Test
+    public void transcodedImageResource_placeholderSentWithItem()
+            throws IOException {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        TranscodedResource resource = AvatarImageTranscoder
+                .transcode(AvatarTestImages.createImage(100, 100), 64);
+        avatarGroupItem.setImageResource(resource);
+        avatarGroup.setItems(avatarGroupItem, avatarGroupItem2);
+        runBeforeClientResponse(ui);
+
+        Assert.assertEquals(resource.getPlaceholder(),
+                getClientItems().getObject(0).getString("placeholder"));
+        Assert.assertFalse(getClientItems().getObject(1)
+                .hasKey("placeholder"));
+        Assert.assertTrue(ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .anyMatch(invocation -> invocation.getInvocation()
+                        .getExpression().contains("__paintPlaceholders")));
+    }
+
+    @Test
+    public void compactItemsPayloadDisabled_itemsSentAsObjects() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setCompactItemsPayload(true);
+        avatarGroup.setItems(avatarGroupItem2);
+        runBeforeClientResponse(ui);
+
+        avatarGroup.setCompactItemsPayload(false);
+        runBeforeClientResponse(ui);
+
+        Assert.assertFalse(avatarGroup.isCompactItemsPayload());
+        Assert.assertEquals("Foo Bar",
+                getClientItems().getObject(0).getString("name"));
+    }
+
+    @Test
+    public void manyItems_jsonTextItemsPayload_itemsSentAsJsonText() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setJsonTextItemsPayload(true);
+        List<AvatarGroupItem> manyItems = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            manyItems.add(new AvatarGroupItem("User " + i));
+        }
+        AvatarGroupItem specialItem = manyItems.get(1);
+        specialItem.setName("\"Quoted\" \\ back\nslash \u2028 \u0001");
+        specialItem.setAbbreviation("QB");
+        specialItem.setImage(imgUrl);
+        specialItem.setColorIndex(colorIndex);
+        avatarGroup.setItems(manyItems);
+        runBeforeClientResponse(ui);
+
+        Assert.assertNull(getClientItems());
+        String json = ui.getInternals().dumpPendingJavaScriptInvocations()
+                .stream()
+                .flatMap(invocation -> invocation.getInvocation()
+                        .getParameters().stream())
+                .filter(String.class::isInstance).map(String.class::cast)
+                .findFirst().orElseThrow(AssertionError::new);
+        JsonArray clientItems = Json.parse(json);
+        Assert.assertEquals(10000, clientItems.length());
+        Assert.assertEquals("User 0",
+                clientItems.getObject(0).getString("name"));
+
+        JsonObject clientItem = clientItems.getObject(1);
+        Assert.assertEquals(specialItem.getName(),
+                clientItem.getString("name"));
+        Assert.assertEquals("QB", clientItem.getString("abbr"));
+        Assert.assertEquals(imgUrl, clientItem.getString("img"));
+        Assert.assertEquals(3, (int) clientItem.getNumber("colorIndex"));
+    }
+
+    @Test
+    public void manyItems_itemsSentAsObjectsByDefault() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setItems(createItems(10000));
+        runBeforeClientResponse(ui);
+
+        Assert.assertFalse(avatarGroup.isJsonTextItemsPayload());
+        Assert.assertEquals(10000, getClientItems().length());
+        Assert.assertTrue(ui.getInternals().dumpPendingJavaScriptInvocations()
+                .isEmpty());
+    }
+
+    @Test
+    public void progressiveChunkSizeSet_itemsSentInChunks() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setProgressiveChunkSize(10);
+        avatarGroup.setItems(createItems(25));
+        runBeforeClientResponse(ui);
+
+        Assert.assertNull(getClientItems());
+        List<PendingJavaScriptInvocation> invocations = ui.getInternals()
+                .dumpPendingJavaScriptInvocations();
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertEquals(Arrays.asList(10, 25),
+                getChunkParameters(invocations.get(0)));
+
+        invocations.get(0).complete(Json.createNull());
+        runBeforeClientResponse(ui);
+        invocations = ui.getInternals().dumpPendingJavaScriptInvocations();
+        Assert.assertEquals(Arrays.asList(10, 10),
+                getChunkParameters(invocations.get(0)));
+
+        invocations.get(0).complete(Json.createNull());
+        runBeforeClientResponse(ui);
+        invocations = ui.getInternals().dumpPendingJavaScriptInvocations();
+        Assert.assertEquals(Arrays.asList(5, 20),
+                getChunkParameters(invocations.get(0)));
+
+        invocations.get(0).complete(Json.createNull());
+        runBeforeClientResponse(ui);
+        Assert.assertTrue(
+                ui.getInternals().dumpPendingJavaScriptInvocations().isEmpty());
+    }
+
+    @Test
+    public void progressiveChunkSizeSet_firstChunkIncludesVisibleItems() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setProgressiveChunkSize(10);
+        avatarGroup.setMaxItemsVisible(15);
+        avatarGroup.setItems(createItems(25));
+        runBeforeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList(15, 25), getChunkParameters(
+                ui.getInternals().dumpPendingJavaScriptInvocations().get(0)));
+    }
+
+    @Test
+    public void progressiveChunkSizeSet_itemsChanged_previousChunksNotSent() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setProgressiveChunkSize(10);
+        avatarGroup.setItems(createItems(25));
+        runBeforeClientResponse(ui);
+        PendingJavaScriptInvocation firstChunk = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().get(0);
+
+        avatarGroup.setItems(createItems(5));
+        runBeforeClientResponse(ui);
+        firstChunk.complete(Json.createNull());
+        runBeforeClientResponse(ui);
+
+        Assert.assertEquals(5, getClientItems().length());
+        Assert.assertTrue(
+                ui.getInternals().dumpPendingJavaScriptInvocations().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeProgressiveChunkSize_throws() {
+        avatarGroup.setProgressiveChunkSize(-1);
+    }
+
+    @Test
+    public void lazyOverflow_onlyVisibleItemsSent() {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setLazyOverflow(true);
+        avatarGroup.setMaxItemsVisible(3);
+        avatarGroup.setItems(createItems(1000));
+        runBeforeClientResponse(ui);
+
+        Assert.assertNull(getClientItems());
+        List<Object> parameters = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().get(0).getInvocation()
+                .getParameters();
+        JsonArray visibleItems = (JsonArray) parameters.stream()
+                .filter(JsonArray.class::isInstance).findFirst()
+                .orElseThrow(AssertionError::new);
+        Assert.assertEquals(3, visibleItems.length());
+        Assert.assertTrue(parameters.contains(1000));
+    }
+
+    @Test
+    public void lazyOverflow_overflowItemsFetchedInPages() throws Exception {
+        UI ui = new UI();
+        ui.add(avatarGroup);
+        avatarGroup.setLazyOverflow(true);
+        avatarGroup.setMaxItemsVisible(3);
+        avatarGroup.setItems(createItems(1000));
+        runBeforeClientResponse(ui);
+        List<Object> parameters = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().get(0).getInvocation()
+                .getParameters();
+        int updateId = (Integer) parameters.get(parameters.size() - 2);
+
+        JsonArray page = fetchOverflowItems(updateId, 3, 1000);
+        Assert.assertEquals(50, page.length());
+        Assert.assertEquals("User 3", page.getObject(0).getString("name"));
+
+        page = fetchOverflowItems(updateId, 990, 50);
+        Assert.assertEquals(10, page.length());
+
+        Assert.assertEquals(0, fetchOverflowItems(updateId - 1, 3, 50)
+                .length());
+    }
+
+    @Test
+    public void lazyOverflowDisabled_overflowItemsNotFetched()
+            throws Exception {
+        avatarGroup.setItems(createItems(10));
+
+        Assert.assertEquals(0, fetchOverflowItems(0, 3, 50).length());
+    }
+
+    private static void assertPooledNames(int maximumSize) {
+        AvatarStringPool.setMaximumSize(maximumSize);
+        AvatarStringPool.setEnabled(true);
+        // Enough names to fill every stripe of the pool, the items keep the
+        // pooled names from being garbage collected
+        List<AvatarGroupItem> pooledItems = createItems(1000);
+
+        int pooled = 0;
+        for (int i = 0; i < pooledItems.size(); i++) {
+            AvatarGroupItem otherItem = new AvatarGroupItem("User " + i);
+            if (otherItem.getName() == pooledItems.get(i).getName()) {
+                pooled++;
+            }
+        }
+        Assert.assertEquals(maximumSize, pooled);
+    }
+
+    private void runBeforeClientResponse(UI ui) {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+    }
+
+    private static List<AvatarGroupItem> createItems(int count) {
+        List<AvatarGroupItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new AvatarGroupItem("User " + i));
+        }
+        return items;
+    }
+
+    /**
+     * Gets the number of items in the chunk and the number that follows it,
+     * which is the total number of items for the first chunk and the offset
+     * of the chunk for the following ones.
+     */
+    private static List<Integer> getChunkParameters(
+            PendingJavaScriptInvocation invocation) {
+        List<Object> parameters = invocation.getInvocation().getParameters();
+        int chunkIndex = parameters.size() - 2;
+        return Arrays.asList(
+                ((JsonArray) parameters.get(chunkIndex)).length(),
+                (Integer) parameters.get(chunkIndex + 1));
+    }
+
+    private JsonArray fetchOverflowItems(int updateId, int offset, int limit)
+            throws Exception {
+        Method fetchOverflowItems = AvatarGroup.class.getDeclaredMethod(
+                "fetchOverflowItems", int.class, int.class, int.class);
+        fetchOverflowItems.setAccessible(true);
+        return (JsonArray) fetchOverflowItems.invoke(avatarGroup, updateId,
+                offset, limit);
+    }
+
+    private JsonArray getClientItems() {
+        return (JsonArray) avatarGroup.getElement().getPropertyRaw("items");
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.avatar.AvatarImageDecoder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarImageDecoderTest {
+
+    private final long maximumPixels = AvatarImageDecoder.getMaximumPixels();
+
+    @After
+    public void restoreMaximumPixels() {
+        AvatarImageDecoder.setMaximumPixels(maximumPixels);
+    }
+
+    @Test
+    public void decodeLargeImage_scaledToSquare() throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(
+                AvatarImageDecoder.decode(createImage(3000, 2000), 64)));
+
+        Assert.assertEquals(64, decoded.getWidth());
+        Assert.assertEquals(64, decoded.getHeight());
+    }
+
+    @Test
+    public void decodeSmallImage_notEnlarged() throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(
+                AvatarImageDecoder.decode(createImage(40, 30), 64)));
+
+        Assert.assertEquals(30, decoded.getWidth());
+        Assert.assertEquals(30, decoded.getHeight());
+    }
+
+    @Test(expected = IOException.class)
+    public void decodeImageOverPixelLimit_throws() throws IOException {
+        AvatarImageDecoder.setMaximumPixels(1000);
+
+        AvatarImageDecoder.decode(createImage(100, 100), 64);
+    }
+
+    @Test(expected = IOException.class)
+    public void decodeUnsupportedFormat_throws() throws IOException {
+        AvatarImageDecoder.decode(
+                new ByteArrayInputStream(new byte[] { 1, 2, 3 }), 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeWithZeroSize_throws() throws IOException {
+        AvatarImageDecoder.decode(createImage(10, 10), 0);
+    }
+
+    private static ByteArrayInputStream createImage(int width, int height)
+            throws IOException {
+        return new ByteArrayInputStream(
+                AvatarTestImages.createImage(width, height));
+    }
+}
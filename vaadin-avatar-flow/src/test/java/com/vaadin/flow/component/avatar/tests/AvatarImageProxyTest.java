@@ -0,0 +1,257 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.avatar.AvatarImageProxy;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder.TranscodedResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarImageProxyTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private AtomicInteger imageRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        byte[] image = AvatarTestImages.createImage(300, 200);
+        server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/avatar.png", exchange -> {
+            imageRequests.incrementAndGet();
+            respond(exchange, 200, "image/png", image);
+        });
+        server.createContext("/page.html", exchange -> respond(exchange, 200,
+                "text/html", "<html></html>".getBytes("UTF-8")));
+        server.createContext("/missing.png", exchange -> respond(exchange,
+                404, "text/plain", new byte[0]));
+        server.createContext("/redirect.png", exchange -> {
+            exchange.getResponseHeaders().set("Location", "/avatar.png");
+            respond(exchange, 302, "text/plain", new byte[0]);
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://" + server.getAddress().getHostString() + ':'
+                + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        AvatarImageProxy.setEnabled(false);
+        AvatarImageProxy.setMaximumContentLength(5 * 1024 * 1024);
+        AvatarImageProxy.clearCache();
+        AvatarImageProxy.setSigningKey(createKey(new SecureRandom()));
+    }
+
+    @Test
+    public void getImage_fetchedOnceAndCached() throws IOException {
+        TranscodedResource resource = AvatarImageProxy
+                .getImage(baseUrl + "/avatar.png");
+
+        Assert.assertSame(resource,
+                AvatarImageProxy.getImage(baseUrl + "/avatar.png"));
+        Assert.assertEquals(1, imageRequests.get());
+        Assert.assertTrue(resource.getPlaceholder() != null);
+    }
+
+    @Test
+    public void getImageConcurrently_fetchedOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<TranscodedResource>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tasks.add(() -> AvatarImageProxy
+                        .getImage(baseUrl + "/avatar.png"));
+            }
+            List<Future<TranscodedResource>> results = executor
+                    .invokeAll(tasks);
+
+            for (Future<TranscodedResource> result : results) {
+                Assert.assertSame(results.get(0).get(), result.get());
+            }
+            Assert.assertEquals(1, imageRequests.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cacheCleared_imageFetchedAgain() throws IOException {
+        AvatarImageProxy.getImage(baseUrl + "/avatar.png");
+        AvatarImageProxy.clearCache();
+        AvatarImageProxy.getImage(baseUrl + "/avatar.png");
+
+        Assert.assertEquals(2, imageRequests.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void getImageOfPage_throws() throws IOException {
+        AvatarImageProxy.getImage(baseUrl + "/page.html");
+    }
+
+    @Test(expected = IOException.class)
+    public void getMissingImage_throws() throws IOException {
+        AvatarImageProxy.getImage(baseUrl + "/missing.png");
+    }
+
+    @Test
+    public void getRedirectedImage_redirectNotFollowed() {
+        try {
+            AvatarImageProxy.getImage(baseUrl + "/redirect.png");
+            Assert.fail("The redirect should not have been followed");
+        } catch (IOException e) {
+            Assert.assertEquals(0, imageRequests.get());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void getTooLargeImage_throws() throws IOException {
+        AvatarImageProxy.setMaximumContentLength(10);
+        AvatarImageProxy.getImage(baseUrl + "/avatar.png");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getImageOfRelativeUrl_throws() throws IOException {
+        AvatarImageProxy.getImage("images/avatar.png");
+    }
+
+    @Test
+    public void proxyEnabled_externalImageServedByProxy() {
+        AvatarImageProxy.setEnabled(true);
+        Avatar avatar = new Avatar();
+        avatar.setImage(baseUrl + "/avatar.png");
+
+        Assert.assertTrue(avatar.getElement().getAttribute("img")
+                .startsWith("VAADIN/dynamic/avatar/proxy/"));
+        Assert.assertEquals(baseUrl + "/avatar.png", avatar.getImage());
+        Assert.assertEquals(0, imageRequests.get());
+    }
+
+    @Test
+    public void signingKeySet_sessionRestoredOnOtherServer_imageServed()
+            throws Exception {
+        byte[] key = createKey(new Random(1));
+        AvatarImageProxy.setSigningKey(key);
+        AvatarImageProxy.setEnabled(true);
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        Avatar avatar = new Avatar();
+        avatar.setImage(baseUrl + "/avatar.png");
+        ui.add(avatar);
+        String url = avatar.getElement().getAttribute("img");
+        byte[] serializedUi = serialize(ui);
+
+        // Another server, with the same key configured
+        AvatarImageProxy.setSigningKey(createKey(new SecureRandom()));
+        AvatarImageProxy.clearCache();
+        UI restoredUi = deserialize(serializedUi);
+        AvatarTestSession restoredSession = (AvatarTestSession) restoredUi
+                .getSession();
+        Assert.assertNull(restoredSession.request(url));
+        AvatarImageProxy.setSigningKey(key);
+
+        Assert.assertNotNull(restoredSession.request(url));
+        Assert.assertEquals(1, imageRequests.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setShortSigningKey_throws() {
+        AvatarImageProxy.setSigningKey(new byte[8]);
+    }
+
+    @Test
+    public void proxyEnabled_relativeImageNotServedByProxy() {
+        AvatarImageProxy.setEnabled(true);
+        Avatar avatar = new Avatar();
+        avatar.setImage("images/avatar.png");
+
+        Assert.assertEquals("images/avatar.png",
+                avatar.getElement().getAttribute("img"));
+    }
+
+    @Test
+    public void proxyDisabled_externalImageNotServedByProxy() {
+        Avatar avatar = new Avatar();
+        avatar.setImage(baseUrl + "/avatar.png");
+
+        Assert.assertEquals(baseUrl + "/avatar.png",
+                avatar.getElement().getAttribute("img"));
+    }
+
+    private static byte[] createKey(Random random) {
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        return key;
+    }
+
+    private static byte[] serialize(Serializable object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deserialize(byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status,
+            String contentType, byte[] content) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status,
+                content.length == 0 ? -1 : content.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder;
+import com.vaadin.flow.server.StreamResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarImageTranscoderTest {
+
+    @After
+    public void resetCache() {
+        AvatarImageTranscoder.clearCache();
+        AvatarImageTranscoder.setMaximumCacheSize(1024);
+    }
+
+    @Test
+    public void transcodeSameImage_sameResource() throws IOException {
+        StreamResource resource = AvatarImageTranscoder
+                .transcode(createImage(BufferedImage.TYPE_INT_RGB), 64);
+
+        Assert.assertSame(resource, AvatarImageTranscoder
+                .transcode(createImage(BufferedImage.TYPE_INT_RGB), 64));
+    }
+
+    @Test
+    public void transcodeSameImageWithOtherSize_otherResource()
+            throws IOException {
+        byte[] image = createImage(BufferedImage.TYPE_INT_RGB);
+
+        Assert.assertNotSame(AvatarImageTranscoder.transcode(image, 64),
+                AvatarImageTranscoder.transcode(image, 32));
+    }
+
+    @Test
+    public void transcodeTransparentImage_png() throws IOException {
+        StreamResource resource = AvatarImageTranscoder
+                .transcode(createImage(BufferedImage.TYPE_INT_ARGB), 64);
+
+        Assert.assertTrue(resource.getName().endsWith(".png"));
+    }
+
+    @Test
+    public void transcode_placeholderIsSmallDataUrl() throws IOException {
+        String placeholder = AvatarImageTranscoder
+                .transcode(createImage(BufferedImage.TYPE_INT_RGB), 64)
+                .getPlaceholder();
+
+        Assert.assertTrue(placeholder.startsWith("data:image/png;base64,"));
+        Assert.assertTrue(placeholder.length() < 200);
+    }
+
+    @Test
+    public void cacheCleared_imageTranscodedAgain() throws IOException {
+        byte[] image = createImage(BufferedImage.TYPE_INT_RGB);
+        StreamResource resource = AvatarImageTranscoder.transcode(image, 64);
+
+        AvatarImageTranscoder.clearCache();
+
+        Assert.assertNotSame(resource,
+                AvatarImageTranscoder.transcode(image, 64));
+    }
+
+    @Test
+    public void maximumCacheSizeZero_imageNotCached() throws IOException {
+        AvatarImageTranscoder.setMaximumCacheSize(0);
+        byte[] image = createImage(BufferedImage.TYPE_INT_RGB);
+
+        Assert.assertNotSame(AvatarImageTranscoder.transcode(image, 64),
+                AvatarImageTranscoder.transcode(image, 64));
+    }
+
+    private static byte[] createImage(int type) throws IOException {
+        return AvatarTestImages.createImage(200, 100, type);
+    }
+}
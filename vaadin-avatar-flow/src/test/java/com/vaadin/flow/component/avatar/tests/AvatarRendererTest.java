@@ -0,0 +1,140 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.component.avatar.AvatarRenderer;
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.server.VaadinSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarRendererTest {
+
+    private AvatarGroupItem item = new AvatarGroupItem("Foo Bar",
+            "https://vaadin.com/");
+
+    @Test
+    public void templateRendersAvatar() {
+        AvatarRenderer<AvatarGroupItem> renderer = new AvatarRenderer<>(
+                AvatarGroupItem::getName);
+
+        Assert.assertTrue(renderer.getTemplate().startsWith("<vaadin-avatar"));
+    }
+
+    @Test
+    public void propertiesProvidedFromItem() {
+        item.setAbbreviation("FB");
+        item.setColorIndex(3);
+        AvatarRenderer<AvatarGroupItem> renderer = new AvatarRenderer<>(
+                AvatarGroupItem::getName)
+                        .withAbbreviation(AvatarGroupItem::getAbbreviation)
+                        .withImage(AvatarGroupItem::getImage)
+                        .withColorIndex(AvatarGroupItem::getColorIndex);
+
+        Assert.assertEquals("Foo Bar", getValue(renderer, "avatarName"));
+        Assert.assertEquals("FB", getValue(renderer, "avatarAbbr"));
+        Assert.assertEquals("https://vaadin.com/",
+                getValue(renderer, "avatarImg"));
+        Assert.assertEquals(3, getValue(renderer, "avatarColorIndex"));
+    }
+
+    @Test
+    public void imageProviderSet_itemWithoutUserId_noImage() {
+        AvatarRenderer<AvatarGroupItem> renderer = new AvatarRenderer<>(
+                AvatarGroupItem::getName).withImageProvider(
+                        AvatarGroupItem::getUserId,
+                        userIds -> Collections.emptyMap());
+
+        Assert.assertNull(getValue(renderer, "avatarImg"));
+    }
+
+    @Test
+    public void imageProviderSet_imageOfRenderedUserServed()
+            throws IOException {
+        AvatarTestSession session = new AvatarTestSession();
+        VaadinSession.setCurrent(session);
+        List<Set<String>> fetches = new CopyOnWriteArrayList<>();
+        item.setUserId("foo");
+        AvatarRenderer<AvatarGroupItem> renderer = createRenderer(fetches);
+
+        String url = (String) getValue(renderer, "avatarImg");
+
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 },
+                session.request(url));
+        Assert.assertEquals(
+                Collections.singletonList(Collections.singleton("foo")),
+                fetches);
+    }
+
+    @Test
+    public void imageProviderSet_userIdOfUrlReplaced_imageNotFetched()
+            throws IOException {
+        AvatarTestSession session = new AvatarTestSession();
+        VaadinSession.setCurrent(session);
+        List<Set<String>> fetches = new CopyOnWriteArrayList<>();
+        item.setUserId("foo");
+        AvatarRenderer<AvatarGroupItem> renderer = createRenderer(fetches);
+        String[] path = ((String) getValue(renderer, "avatarImg")).split("/");
+        // VAADIN/dynamic/avatar/<provider id>/<user id>/<signature>
+        path[4] = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("bar".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertNull(session.request(String.join("/", path)));
+        Assert.assertTrue(fetches.isEmpty());
+    }
+
+    @After
+    public void clearCurrentSession() {
+        VaadinSession.setCurrent(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void createWithoutNameProvider_throws() {
+        new AvatarRenderer<AvatarGroupItem>(null);
+    }
+
+    private static AvatarRenderer<AvatarGroupItem> createRenderer(
+            List<Set<String>> fetches) {
+        return new AvatarRenderer<>(AvatarGroupItem::getName)
+                .withImageProvider(AvatarGroupItem::getUserId, userIds -> {
+                    fetches.add(userIds);
+                    return Collections.singletonMap(userIds.iterator().next(),
+                            new StreamResource("user.png",
+                                    () -> new ByteArrayInputStream(
+                                            new byte[] { 1, 2, 3 })));
+                });
+    }
+
+    private Object getValue(AvatarRenderer<AvatarGroupItem> renderer,
+            String property) {
+        return renderer.getValueProviders().get(property).apply(item);
+    }
+}
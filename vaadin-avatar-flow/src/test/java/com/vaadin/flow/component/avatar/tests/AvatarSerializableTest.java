@@ -2,5 +2,21 @@ package com.vaadin.flow.component.avatar.tests;
 
 import com.vaadin.flow.testutil.ClassesSerializableTest;
 
+import java.util.stream.Stream;
+
 public class AvatarSerializableTest extends ClassesSerializableTest {
+
+    @Override
+    protected Stream<String> getExcludedPatterns() {
+        return Stream.concat(super.getExcludedPatterns(), Stream.of(
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarBulkImport(\\$.*)?",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarImageDecoder",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarImageLoader",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarImageProxy(\\$1)?",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarImageTranscoder(\\$1)?",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarJsonWriter",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarStore\\$ImageLoading",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarStringPool(\\$.*)?",
+                "com\\.vaadin\\.flow\\.component\\.avatar\\.AvatarWarmup"));
+    }
 }
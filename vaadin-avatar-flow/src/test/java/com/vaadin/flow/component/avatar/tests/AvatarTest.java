@@ -16,11 +16,23 @@
 
 package com.vaadin.flow.component.avatar.tests;
 
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.avatar.AvatarImageLoader;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder;
+import com.vaadin.flow.component.avatar.AvatarImageTranscoder.TranscodedResource;
+import com.vaadin.flow.component.avatar.AvatarPool;
+import com.vaadin.flow.component.avatar.AvatarStringPool;
 import com.vaadin.flow.component.avatar.AvatarVariant;
+import com.vaadin.flow.server.StreamResource;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -34,6 +46,12 @@ public class AvatarTest {
     String abbr = "fb";
     String url = "https://vaadin.com/";
 
+    @After
+    public void resetStatics() {
+        AvatarStringPool.setEnabled(false);
+        AvatarImageLoader.setExecutor(null);
+    }
+
     @Test
     public void shouldCreateEmptyAvatarWithDefaultState() {
         Assert.assertNull("Initial name is null", avatar.getName());
@@ -59,6 +77,170 @@ public class AvatarTest {
         Assert.assertEquals(avatar.getImage(), url);
     }
 
+    @Test
+    public void setStreamResource_imageServedByAvatarHandler() {
+        StreamResource resource = new StreamResource("user+.png",
+                () -> new ByteArrayInputStream(new byte[0]));
+        avatar.setImageResource(resource);
+
+        Assert.assertEquals(
+                "VAADIN/dynamic/avatar/resource/" + resource.getId()
+                        + "/user%2B.png",
+                avatar.getImage());
+    }
+
+    @Test
+    public void setTranscodedResource_placeholderDisplayed()
+            throws IOException {
+        TranscodedResource resource = AvatarImageTranscoder
+                .transcode(AvatarTestImages.createImage(100, 100), 64);
+        avatar.setImageResource(resource);
+
+        Assert.assertEquals("url(" + resource.getPlaceholder() + ")",
+                avatar.getStyle().get("--vaadin-avatar-placeholder"));
+    }
+
+    @Test
+    public void backgroundImageSet_setTranscodedResource_backgroundImageKept()
+            throws IOException {
+        avatar.getStyle().set("background-image", "url(background.png)");
+        avatar.setImageResource(AvatarImageTranscoder
+                .transcode(AvatarTestImages.createImage(100, 100), 64));
+        avatar.setImage(url);
+
+        Assert.assertEquals("url(background.png)",
+                avatar.getStyle().get("background-image"));
+    }
+
+    @Test
+    public void setTranscodedResource_setImage_placeholderRemoved()
+            throws IOException {
+        avatar.setImageResource(AvatarImageTranscoder
+                .transcode(AvatarTestImages.createImage(100, 100), 64));
+        avatar.setImage(url);
+
+        Assert.assertNull(
+                avatar.getStyle().get("--vaadin-avatar-placeholder"));
+    }
+
+    @Test
+    public void setImageAsync_currentImageRemoved() {
+        avatar.setImage(url);
+        avatar.setImageAsync("avatar.png", () -> new byte[0]);
+
+        Assert.assertNull(avatar.getImage());
+        Assert.assertNull(avatar.getImageResource());
+    }
+
+    @Test
+    public void setImageAsync_imagesLoadedTogether_setInOneAccess()
+            throws Exception {
+        List<Runnable> loads = new ArrayList<>();
+        AvatarImageLoader.setExecutor(loads::add);
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        Avatar otherAvatar = new Avatar();
+        ui.add(avatar, otherAvatar);
+        avatar.setImageAsync("avatar.png", () -> new byte[0]);
+        otherAvatar.setImageAsync("other.png", () -> new byte[0]);
+
+        loads.forEach(Runnable::run);
+        Assert.assertNull(avatar.getImageResource());
+
+        Assert.assertTrue(session.runPendingAccessTask());
+        Assert.assertEquals("avatar.png", avatar.getImageResource().getName());
+        Assert.assertEquals("other.png",
+                otherAvatar.getImageResource().getName());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void setImageAsyncWithoutLoader_throws() {
+        avatar.setImageAsync("avatar.png", null);
+    }
+
+    @Test
+    public void stringPoolEnabled_equalNamesAndAbbreviationsShared() {
+        AvatarStringPool.setEnabled(true);
+        avatar.setName(new String(name));
+        avatar.setAbbreviation(new String(abbr));
+
+        Avatar otherAvatar = new Avatar(new String(name));
+        otherAvatar.setAbbreviation(new String(abbr));
+
+        Assert.assertSame(avatar.getName(), otherAvatar.getName());
+        Assert.assertSame(avatar.getAbbreviation(),
+                otherAvatar.getAbbreviation());
+    }
+
+    @Test
+    public void stringPoolDisabled_equalNamesNotShared() {
+        avatar.setName(new String(name));
+        Avatar otherAvatar = new Avatar(new String(name));
+
+        Assert.assertEquals(avatar.getName(), otherAvatar.getName());
+        Assert.assertNotSame(avatar.getName(), otherAvatar.getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setStringPoolMaximumSizeZero_throws() {
+        AvatarStringPool.setMaximumSize(0);
+    }
+
+    @Test
+    public void rebind_propertiesSet() {
+        avatar.setImageResource(new StreamResource("avatar.png",
+                () -> new ByteArrayInputStream(new byte[0])));
+        avatar.setColorIndex(2);
+
+        avatar.rebind(name, abbr, url, null);
+
+        Assert.assertEquals(name, avatar.getName());
+        Assert.assertEquals(abbr, avatar.getAbbreviation());
+        Assert.assertEquals(url, avatar.getImage());
+        Assert.assertNull(avatar.getImageResource());
+        Assert.assertNull(avatar.getColorIndex());
+    }
+
+    @Test
+    public void rebind_propertiesRemoved() {
+        avatar.rebind(name, abbr, url, 3);
+        avatar.rebind(null, null, null, null);
+
+        Assert.assertNull(avatar.getName());
+        Assert.assertNull(avatar.getAbbreviation());
+        Assert.assertNull(avatar.getImage());
+        Assert.assertNull(avatar.getColorIndex());
+    }
+
+    @Test
+    public void avatarPool_releasedAvatarReused() {
+        AvatarPool pool = new AvatarPool(1);
+        UI ui = new UI();
+        ui.add(avatar);
+
+        pool.release(avatar);
+        Assert.assertFalse(avatar.isAttached());
+        Assert.assertEquals(1, pool.size());
+
+        Avatar obtained = pool.obtain(name, abbr, url, 3);
+        Assert.assertSame(avatar, obtained);
+        Assert.assertEquals(name, obtained.getName());
+        Assert.assertEquals(Integer.valueOf(3), obtained.getColorIndex());
+        Assert.assertEquals(0, pool.size());
+        Assert.assertNotSame(avatar, pool.obtain(name, abbr, url, 3));
+    }
+
+    @Test
+    public void avatarPoolFull_releasedAvatarDiscarded() {
+        AvatarPool pool = new AvatarPool(1);
+        pool.release(new Avatar());
+        pool.release(avatar);
+        pool.release(avatar);
+
+        Assert.assertEquals(1, pool.size());
+        Assert.assertNotSame(avatar, pool.obtain(name, abbr, url, null));
+    }
+
     @Test
     public void constructAvatarWithName() {
         constructedAvatar = new Avatar(name);
@@ -100,5 +282,4 @@ public class AvatarTest {
         avatar.setI18n(i18n);
         Assert.assertEquals(i18n, avatar.getI18n());
     }
-
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Creates the images used by the tests, so that the tests do not depend on
+ * image files.
+ *
+ * @author Vaadin Ltd.
+ */
+public final class AvatarTestImages {
+
+    private AvatarTestImages() {
+    }
+
+    /**
+     * Creates an opaque PNG image of the given size.
+     */
+    public static byte[] createImage(int width, int height)
+            throws IOException {
+        return createImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Creates a PNG image of the given size and image type, with a
+     * translucent diagonal line over a black or transparent background.
+     */
+    public static byte[] createImage(int width, int height, int type)
+            throws IOException {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, x * height / width, 0x80336699);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.DefaultDeploymentConfiguration;
+import com.vaadin.flow.server.RequestHandler;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServletService;
+import com.vaadin.flow.server.VaadinSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Proxy;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A session for the tests that need the resource registry, the request
+ * handlers or {@link UI#access(Command)}. The session is locked by the thread
+ * that creates or deserializes it, and the access tasks are run by that
+ * thread with {@link #runPendingAccessTask()}.
+ *
+ * @author Vaadin Ltd.
+ */
+public class AvatarTestSession extends VaadinSession {
+
+    private static final VaadinService SERVICE = new TestService();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private transient BlockingQueue<FutureTask<Void>> pendingAccessTasks =
+            new LinkedBlockingQueue<>();
+
+    public AvatarTestSession() {
+        super(SERVICE);
+        lock.lock();
+        setConfiguration(new DefaultDeploymentConfiguration(
+                AvatarTestSession.class, new Properties()));
+    }
+
+    /**
+     * Creates a UI of this session.
+     */
+    public UI createUI() {
+        UI ui = new UI();
+        ui.getInternals().setSession(this);
+        return ui;
+    }
+
+    /**
+     * Waits for an access task and runs it.
+     *
+     * @return {@code true} if a task was run, {@code false} if there was no
+     *         task within 5 seconds
+     */
+    public boolean runPendingAccessTask() throws Exception {
+        FutureTask<Void> task = pendingAccessTasks.poll(5, TimeUnit.SECONDS);
+        if (task == null) {
+            return false;
+        }
+        task.run();
+        // Rethrows the failure of the task
+        task.get();
+        return true;
+    }
+
+    /**
+     * Runs the access tasks that are already pending without waiting for
+     * more.
+     *
+     * @return the number of tasks run
+     */
+    public int runPendingAccessTasks() throws Exception {
+        int count = 0;
+        FutureTask<Void> task;
+        while ((task = pendingAccessTasks.poll()) != null) {
+            task.run();
+            // Rethrows the failure of the task
+            task.get();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Requests the given URL from the request handlers of this session.
+     *
+     * @return the content of the response, or {@code null} if no handler
+     *         handled the URL or the handler responded with an error
+     */
+    public byte[] request(String url) throws IOException {
+        VaadinRequest request = (VaadinRequest) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                (proxy, method, args) -> "getPathInfo"
+                        .equals(method.getName()) ? "/" + url : null);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        AtomicBoolean failed = new AtomicBoolean();
+        VaadinResponse response = (VaadinResponse) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { VaadinResponse.class },
+                (proxy, method, args) -> {
+                    if ("getOutputStream".equals(method.getName())) {
+                        return content;
+                    }
+                    if ("sendError".equals(method.getName())) {
+                        failed.set(true);
+                    }
+                    return null;
+                });
+        for (RequestHandler handler : new ArrayList<>(getRequestHandlers())) {
+            if (handler.handleRequest(this, request, response)) {
+                return failed.get() ? null : content.toByteArray();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public VaadinService getService() {
+        return SERVICE;
+    }
+
+    @Override
+    public Lock getLockInstance() {
+        return lock;
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public Future<Void> access(Command command) {
+        FutureTask<Void> task = new FutureTask<>(command::execute, null);
+        pendingAccessTasks.add(task);
+        return task;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // A lock is deserialized unlocked
+        lock.lock();
+        pendingAccessTasks = new LinkedBlockingQueue<>();
+        setConfiguration(new DefaultDeploymentConfiguration(
+                AvatarTestSession.class, new Properties()));
+    }
+
+    private static class TestService extends VaadinServletService {
+        @Override
+        public String getMimeType(String resourceName) {
+            return URLConnection.guessContentTypeFromName(resourceName);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.flow.component.avatar.tests;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.avatar.AvatarBulkImport;
+import com.vaadin.flow.component.avatar.AvatarStore;
+import com.vaadin.flow.component.avatar.AvatarWarmup;
+import com.vaadin.flow.server.AbstractStreamResource;
+import com.vaadin.flow.server.StreamResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author Vaadin Ltd.
+ */
+public class AvatarWarmupTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AvatarStore store = AvatarStore.get("warmup-test");
+
+    @After
+    public void clearStore() {
+        store.setImageLoader(32, null);
+        store.clear();
+    }
+
+    @Test
+    public void storeWithImageLoader_missingImageLoadedOnce() {
+        List<String> loadedIds = new CopyOnWriteArrayList<>();
+        store.setImageLoader(32, id -> {
+            loadedIds.add(id);
+            return AvatarTestImages.createImage(100, 80);
+        });
+
+        AbstractStreamResource image = store.getImage("user-1");
+
+        Assert.assertNotNull(image);
+        Assert.assertSame(image, store.getImage("user-1"));
+        Assert.assertEquals(Arrays.asList("user-1"), loadedIds);
+    }
+
+    @Test
+    public void storeWithFailingImageLoader_noImage() {
+        store.setImageLoader(32, id -> new byte[] { 1 });
+
+        Assert.assertNull(store.getImage("user-1"));
+        Assert.assertFalse(store.containsImage("user-1"));
+    }
+
+    @Test
+    public void storeWithImageLoader_fetchImages_imageLoadedWhenRequested()
+            throws IOException {
+        List<String> loadedIds = new CopyOnWriteArrayList<>();
+        store.setImageLoader(32, id -> {
+            loadedIds.add(id);
+            return AvatarTestImages.createImage(100, 80);
+        });
+        AvatarTestSession session = new AvatarTestSession();
+        UI ui = session.createUI();
+        Avatar avatar = new Avatar();
+        avatar.setImageResource(store
+                .fetchImages(Collections.singleton("user-1")).get("user-1"));
+        ui.add(avatar);
+
+        Assert.assertTrue(loadedIds.isEmpty());
+
+        Assert.assertNotNull(session.request(avatar.getImage()));
+        Assert.assertEquals(Arrays.asList("user-1"), loadedIds);
+        Assert.assertTrue(store.containsImage("user-1"));
+    }
+
+    @Test
+    public void getMostRequestedIds_mostRequestedFirst() {
+        putImages("user-1", "user-2", "user-3");
+        store.getImage("unknown");
+        store.getImage("unknown");
+        store.getImage("unknown");
+        store.getImage("user-1");
+        store.getImage("user-2");
+        store.getImage("user-2");
+        store.fetchImages(Collections.singleton("user-3"));
+        store.fetchImages(Collections.singleton("user-3"));
+        store.getImage("user-3");
+
+        Assert.assertEquals(Arrays.asList("user-3", "user-2"),
+                store.getMostRequestedIds(2));
+    }
+
+    @Test
+    public void saveMostRequestedIds_idsLoaded() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("avatars");
+        putImages("user-1", "user-2");
+        store.getImage("user-1");
+        store.getImage("user-2");
+        store.getImage("user-2");
+
+        AvatarWarmup.saveMostRequestedIds(store, 10, file);
+
+        Assert.assertEquals(Arrays.asList("user-2", "user-1"),
+                AvatarWarmup.loadIds(file));
+    }
+
+    @Test
+    public void loadIdsWithoutFile_noIds() throws IOException {
+        Assert.assertTrue(AvatarWarmup
+                .loadIds(temporaryFolder.getRoot().toPath().resolve("none"))
+                .isEmpty());
+    }
+
+    @Test
+    public void warmUp_missingImagesLoaded() {
+        List<String> loadedIds = new CopyOnWriteArrayList<>();
+        AvatarBulkImport.ImageLoader loader = id -> {
+            loadedIds.add(id);
+            return AvatarTestImages.createImage(100, 80);
+        };
+        store.setImageLoader(32, loader);
+        store.getImage("user-1");
+        loadedIds.clear();
+
+        AvatarBulkImport.Result result = AvatarWarmup.warmUp(store, 32,
+                loader, Arrays.asList("user-1", "user-2", "user-3")).join();
+
+        Assert.assertEquals(2, result.getImportedCount());
+        Assert.assertEquals(3, store.size());
+        Assert.assertFalse(loadedIds.contains("user-1"));
+
+        // Served from the store without loading
+        store.getImage("user-2");
+        Assert.assertEquals(2, loadedIds.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getMostRequestedIdsNegativeLimit_throws() {
+        store.getMostRequestedIds(-1);
+    }
+
+    private void putImages(String... ids) {
+        for (String id : ids) {
+            store.putImage(id, new StreamResource(id + ".png",
+                    () -> new ByteArrayInputStream(new byte[0])));
+        }
+    }
+}